@@ -26,24 +26,57 @@ package com.oracle.libuv;
 
 public class Address {
 
-    private final String ip;
+    static final String IPV4 = "IPv4";
+
+    static final String IPV6 = "IPv6";
+
+    // formatted on first use for addresses created from their binary form
+    private String ip;
 
     private final int port;
 
     private final String family;
 
+    // binary form in network byte order, the first four bytes for ipv4
+    private final long high;
+
+    private final long low;
+
     Address(final String ip,
             final int    port,
             final String family) {
         this.ip = ip;
         this.port = port;
         this.family = family;
+        this.high = 0;
+        this.low = 0;
+    }
+
+    Address(final long    high,
+            final long    low,
+            final int     port,
+            final boolean ipv6) {
+        this.port = port;
+        this.family = ipv6 ? IPV6 : IPV4;
+        this.high = high;
+        this.low = low;
     }
 
     public String getIp() {
+        String ip = this.ip;
+        if (ip == null) {
+            // a race only formats twice
+            ip = IPV6.equals(family) ? formatIPv6(high, low) : formatIPv4((int) (high >>> 32));
+            this.ip = ip;
+        }
         return ip;
     }
 
+    // only meaningful for addresses created from their binary form
+    boolean matches(final long high, final long low, final int port, final boolean ipv6) {
+        return this.high == high && this.low == low && this.port == port && (family == IPV6) == ipv6;
+    }
+
     public int getPort() {
         return port;
     }
@@ -54,6 +87,75 @@ public class Address {
 
     @Override
     public String toString() {
-        return "Address [ip=" + ip + ", port=" + port + ", family=" + family + "]";
+        return "Address [ip=" + getIp() + ", port=" + port + ", family=" + family + "]";
+    }
+
+    private static String formatIPv4(final int address) {
+        return new StringBuilder(15)
+            .append(address >>> 24).append('.')
+            .append((address >>> 16) & 0xff).append('.')
+            .append((address >>> 8) & 0xff).append('.')
+            .append(address & 0xff)
+            .toString();
+    }
+
+    // same output as uv_inet_ntop, which follows the BSD inet_ntop6
+    private static String formatIPv6(final long high, final long low) {
+        final int[] words = new int[8];
+        for (int i = 0; i < 4; i++) {
+            words[i] = (int) (high >>> (48 - i * 16)) & 0xffff;
+            words[i + 4] = (int) (low >>> (48 - i * 16)) & 0xffff;
+        }
+        // the longest run of zero words, the first one on a tie
+        int bestBase = -1;
+        int bestLen = 0;
+        int curBase = -1;
+        int curLen = 0;
+        for (int i = 0; i < 8; i++) {
+            if (words[i] == 0) {
+                if (curBase == -1) {
+                    curBase = i;
+                    curLen = 1;
+                } else {
+                    curLen++;
+                }
+            } else if (curBase != -1) {
+                if (bestBase == -1 || curLen > bestLen) {
+                    bestBase = curBase;
+                    bestLen = curLen;
+                }
+                curBase = -1;
+            }
+        }
+        if (curBase != -1 && (bestBase == -1 || curLen > bestLen)) {
+            bestBase = curBase;
+            bestLen = curLen;
+        }
+        if (bestBase != -1 && bestLen < 2) {
+            bestBase = -1;
+        }
+        final StringBuilder ip = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (bestBase != -1 && i >= bestBase && i < bestBase + bestLen) {
+                if (i == bestBase) {
+                    ip.append(':');
+                }
+                continue;
+            }
+            if (i != 0) {
+                ip.append(':');
+            }
+            // an encapsulated ipv4 address
+            if (i == 6 && bestBase == 0 &&
+                (bestLen == 6 || (bestLen == 7 && words[7] != 0x0001) || (bestLen == 5 && words[5] == 0xffff))) {
+                ip.append(formatIPv4((int) low));
+                break;
+            }
+            ip.append(Integer.toHexString(words[i]));
+        }
+        if (bestBase != -1 && bestBase + bestLen == 8) {
+            ip.append(':');
+        }
+        return ip.toString();
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Recently seen peer addresses of a loop, so that a peer sending many
+ * datagrams is reported with the same {@link Address} instead of a new one
+ * with freshly formatted strings every time.
+ * <p>
+ * Native code writes a peer in binary form into {@link #peer()} before the
+ * upcall, a hit allocates nothing and the ip string of a miss is only
+ * formatted when asked for. Direct mapped, a colliding peer replaces the
+ * previous one. Only used from the loop thread.
+ */
+final class AddressCache {
+
+    // must match struct PeerRecord in address.h
+    static final int PEER_SIZE = 20;
+
+    private static final int FAMILY = 0;
+
+    private static final int PORT = 2;
+
+    private static final int ADDRESS = 4;
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final Address[] entries;
+
+    private final int mask;
+
+    private final ByteBuffer peer;
+
+    private long hits;
+
+    private long misses;
+
+    AddressCache(final int size) {
+        assert size > 0;
+        final int capacity = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        entries = new Address[capacity];
+        mask = capacity - 1;
+        peer = ByteBuffer.allocateDirect(PEER_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    ByteBuffer peer() {
+        return peer;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the address last written to {@link #peer()}, {@code null} if
+     *         there is none.
+     */
+    Address lookup() {
+        return lookup(peer, 0);
+    }
+
+    /**
+     * @return the address of the peer record at the given offset of a
+     *         native order buffer, {@code null} if it has no family.
+     */
+    Address lookup(final ByteBuffer records, final int offset) {
+        final int family = records.getShort(offset + FAMILY) & 0xffff;
+        if (family == 0) {
+            return null;
+        }
+        final boolean ipv6 = family == 6;
+        final int port = records.getShort(offset + PORT) & 0xffff;
+        final long high = networkOrder(records.getLong(offset + ADDRESS));
+        final long low = networkOrder(records.getLong(offset + ADDRESS + 8));
+        final int index = hash(high, low, port) & mask;
+        final Address cached = entries[index];
+        if (cached != null && cached.matches(high, low, port, ipv6)) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        final Address address = new Address(high, low, port, ipv6);
+        entries[index] = address;
+        return address;
+    }
+
+    private static long networkOrder(final long value) {
+        return LITTLE_ENDIAN ? Long.reverseBytes(value) : value;
+    }
+
+    private static int hash(final long high, final long low, final int port) {
+        final long h = (high ^ (high >>> 32) ^ low ^ (low >>> 32)) * 0x9e3779b97f4a7c15L + port;
+        return (int) (h ^ (h >>> 29));
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking {@link InputStream} and {@link OutputStream} over a stream handle,
+ * so that a connection can be served with straight-line code on a thread of
+ * its own while the loop thread multiplexes the i/o.
+ * <p>
+ * The loop thread buffers up to {@code capacity} read bytes and stops reading
+ * until the reader drained half of them. Writers block while
+ * {@code capacity} written bytes are not yet handed to the kernel. Everything
+ * that touches the handle runs on the loop thread through a
+ * {@link LoopExecutor}. Waiting threads park on a {@link ReentrantLock}
+ * rather than a monitor, which keeps them cheap on runtimes with virtual
+ * threads.
+ */
+public final class BlockingStream implements Closeable {
+
+    private final StreamHandle stream;
+
+    private final LoopExecutor executor;
+
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition readable = lock.newCondition();
+
+    private final Condition writable = lock.newCondition();
+
+    // guarded by lock
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+
+    private int buffered;
+
+    private boolean reading;
+
+    private boolean resumeScheduled;
+
+    private boolean eof;
+
+    private long pendingWrites;
+
+    private Throwable writeError;
+
+    private boolean closed;
+
+    private final InputStream input = new Input();
+
+    private final OutputStream output = new Output();
+
+    /**
+     * Take over the reads of a stream, must be called on the loop thread.
+     *
+     * @param stream   a connected tcp or pipe handle.
+     * @param executor runs tasks on the loop of the stream.
+     * @param capacity bytes buffered in each direction before the other side
+     *                 has to wait.
+     */
+    public BlockingStream(final StreamHandle stream,
+                          final LoopExecutor executor,
+                          final int          capacity) {
+        requireNonNull(stream);
+        requireNonNull(executor);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+        this.stream = stream;
+        this.executor = executor;
+        this.capacity = capacity;
+        stream.addCloseListener(this::onClosed);
+        stream.setReadCallback(this::onRead);
+        reading = true;
+        stream.readStart();
+    }
+
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    /**
+     * Close the handle, threads blocked on either stream fail with an
+     * {@link IOException}. Can be called from any thread.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            readable.signalAll();
+            writable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(stream::close);
+        } catch (final RejectedExecutionException ex) {
+            // the loop is gone and its handles with it
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Loop thread
+    // ------------------------------------------------------------------------
+
+    private void onRead(final ByteBuffer data) {
+        lock.lock();
+        try {
+            if (data == null) {
+                eof = true;
+            } else {
+                // the buffer may be a slice of memory the loop reuses
+                final ByteBuffer chunk = ByteBuffer.allocate(data.remaining());
+                chunk.put(data).flip();
+                chunks.add(chunk);
+                buffered += chunk.remaining();
+                if (buffered >= capacity && reading) {
+                    reading = false;
+                    stream.readStop();
+                }
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resume() {
+        lock.lock();
+        try {
+            resumeScheduled = false;
+            if (!reading && !eof && !closed && !stream.closed) {
+                reading = true;
+                stream.readStart();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onWritten(final int       length,
+                           final Throwable error) {
+        lock.lock();
+        try {
+            pendingWrites -= length;
+            if (error != null && writeError == null) {
+                writeError = error;
+            }
+            writable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onClosed() {
+        lock.lock();
+        try {
+            closed = true;
+            readable.signalAll();
+            writable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private void submit(final Runnable task) throws IOException {
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException ex) {
+            throw new IOException("loop terminated", ex);
+        }
+    }
+
+    // an interrupt ends the wait with the interrupt status kept
+    private void await(final Condition condition) throws IOException {
+        try {
+            condition.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private final class Input extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b,
+                        final int    off,
+                        final int    len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            boolean resume = false;
+            int n = 0;
+            lock.lock();
+            try {
+                while (chunks.isEmpty()) {
+                    if (eof) {
+                        return -1;
+                    }
+                    if (closed) {
+                        throw new IOException("stream closed");
+                    }
+                    await(readable);
+                }
+                while (n < len && !chunks.isEmpty()) {
+                    final ByteBuffer chunk = chunks.peek();
+                    final int count = Math.min(len - n, chunk.remaining());
+                    chunk.get(b, off + n, count);
+                    n += count;
+                    if (!chunk.hasRemaining()) {
+                        chunks.poll();
+                    }
+                }
+                buffered -= n;
+                if (!reading && !resumeScheduled && !eof && buffered <= capacity / 2) {
+                    resumeScheduled = true;
+                    resume = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (resume) {
+                submit(BlockingStream.this::resume);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return buffered;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            BlockingStream.this.close();
+        }
+    }
+
+    private final class Output extends OutputStream {
+
+        private boolean shutdown;
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b,
+                          final int    off,
+                          final int    len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return;
+            }
+            // the caller may reuse the array once this returns
+            final byte[] data = new byte[len];
+            System.arraycopy(b, off, data, 0, len);
+            lock.lock();
+            try {
+                while (pendingWrites >= capacity) {
+                    checkWritable();
+                    await(writable);
+                }
+                checkWritable();
+                pendingWrites += len;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                submit(() -> {
+                    if (stream.closed) {
+                        onWritten(len, new IOException("stream closed"));
+                    } else {
+                        stream.writeAsync(ByteBuffer.wrap(data), 0, len)
+                              .whenComplete((status, error) -> onWritten(len, error));
+                    }
+                });
+            } catch (final IOException ex) {
+                // the loop is gone, the bytes are not pending and flush() must
+                // not wait for them
+                onWritten(len, ex);
+                throw ex;
+            }
+        }
+
+        /**
+         * Wait until every written byte was handed to the kernel.
+         */
+        @Override
+        public void flush() throws IOException {
+            lock.lock();
+            try {
+                while (pendingWrites > 0) {
+                    checkWritable();
+                    await(writable);
+                }
+                checkWritable();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Flush and shut down the write side of the stream, reading goes on.
+         */
+        @Override
+        public void close() throws IOException {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            flush();
+            submit(() -> {
+                if (!stream.closed) {
+                    stream.closeWrite();
+                }
+            });
+        }
+
+        private void checkWritable() throws IOException {
+            if (writeError != null) {
+                throw new IOException("write failed", writeError);
+            }
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+        }
+    }
+}
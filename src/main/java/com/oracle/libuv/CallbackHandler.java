@@ -44,8 +44,16 @@ public interface CallbackHandler {
 
     void handleStreamReadCallback(StreamReadCallback cb, ByteBuffer data);
 
+    void handleStreamLeasedReadCallback(StreamLeasedReadCallback cb, LeasedBuffer buffer);
+
+    void handleStreamProvidedReadCallback(StreamReadCallback cb, ByteBuffer data);
+
+    void handleStreamNoBufferCallback(StreamNoBufferCallback cb);
+
     void handleStreamWriteCallback(StreamWriteCallback cb, int status, Exception error);
 
+    void handleStreamWritabilityCallback(StreamWritabilityCallback cb, boolean writable);
+
     void handleStreamConnectCallback(StreamConnectCallback cb, int status, Exception error);
 
     void handleStreamConnectionCallback(StreamConnectionCallback cb, int status, Exception error);
@@ -64,6 +72,8 @@ public interface CallbackHandler {
 
     void handleUDPRecvCallback(UDPRecvCallback cb, int nread, ByteBuffer data, Address address);
 
+    void handleUDPRecvBatchCallback(UDPRecvBatchCallback cb, int status, UDPRecvBatch batch);
+
     void handleUDPSendCallback(UDPSendCallback cb, int status, Exception error);
 
     void handleUDPCloseCallback(UDPCloseCallback cb);
@@ -27,6 +27,9 @@ package com.oracle.libuv;
 import static java.lang.String.valueOf;
 import static java.util.Objects.requireNonNull;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 public class DNSHandle {
 
     private final long pointer;
@@ -41,6 +44,8 @@ public class DNSHandle {
 
     private boolean executed;
 
+    private CompletableFuture<Address> future;
+
     static {
         _static_initialize();
     }
@@ -76,6 +81,31 @@ public class DNSHandle {
                                port == 0 ? null : valueOf(port));
     }
 
+    /**
+     * Like {@link #execute()}, the returned stage completes on the loop thread
+     * with the resolved address, or exceptionally if the host did not resolve.
+     * The {@link DnsCallback} is called as well.
+     */
+    public CompletionStage<Address> executeAsync() {
+        if (executed) {
+            throw new IllegalStateException("DNS Handle can't be used more than once");
+        }
+        final CompletableFuture<Address> future = new CompletableFuture<>();
+        this.future = future;
+        try {
+            final int r = execute();
+            if (r < 0) {
+                // failed right away, the callback is never called
+                this.future = null;
+                future.completeExceptionally(new NativeException("getaddrinfo failed for " + host + " with status " + r));
+            }
+        } catch (final RuntimeException ex) {
+            this.future = null;
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
     private void callback(final Address address,
                           final int     status) {
         if (onDns != null) {
@@ -83,6 +113,14 @@ public class DNSHandle {
                 .handleDnsCallback(onDns, address,
                                    status);
         }
+        if (future != null) {
+            if (address != null && status >= 0) {
+                future.complete(address);
+            } else {
+                future.completeExceptionally(new NativeException("getaddrinfo failed for " + host));
+            }
+            future = null;
+        }
     }
 
     public String getHost() {
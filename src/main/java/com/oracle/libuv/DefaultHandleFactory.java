@@ -42,6 +42,11 @@ public class DefaultHandleFactory implements HandleFactory {
         return new AsyncHandle(loop);
     }
 
+    @Override
+    public LoopExecutor newLoopExecutor(final int batchSize) {
+        return new LoopExecutor(loop, batchSize);
+    }
+
     @Override
     public CheckHandle newCheckHandle() {
         return new CheckHandle(loop);
@@ -78,11 +83,21 @@ public class DefaultHandleFactory implements HandleFactory {
         return new TimerHandle(loop);
     }
 
+    @Override
+    public TimerWheel newTimerWheel(final long tickMillis, final int wheelSize) {
+        return new TimerWheel(loop, tickMillis, wheelSize);
+    }
+
     @Override
     public UDPHandle newUDPHandle() {
         return new UDPHandle(loop);
     }
 
+    @Override
+    public UDPHandle newUDPHandle(final int recvBatchSize) {
+        return new UDPHandle(loop, recvBatchSize);
+    }
+
     @Override
     public DNSHandle newDnsHandle(String host, int port) {
         return new DNSHandle(loop, host, port);
@@ -30,6 +30,8 @@ public interface HandleFactory {
 
     AsyncHandle newAsyncHandle();
 
+    LoopExecutor newLoopExecutor(int batchSize);
+
     CheckHandle newCheckHandle();
 
     PrepareHandle newPrepareHandle();
@@ -44,8 +46,18 @@ public interface HandleFactory {
 
     TimerHandle newTimerHandle();
 
+    TimerWheel newTimerWheel(long tickMillis, int wheelSize);
+
     UDPHandle newUDPHandle();
 
+    /**
+     * A udp handle receiving up to {@code recvBatchSize} datagrams per system
+     * call with {@code recvmmsg}, delivered to its
+     * {@link UDPRecvBatchCallback}. Platforms without {@code recvmmsg} deliver
+     * batches of one datagram.
+     */
+    UDPHandle newUDPHandle(int recvBatchSize);
+
     DNSHandle newDnsHandle(String host, int port);
 
     DNSHandle newDnsHandle(String host);
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+/**
+ * Types of libuv handles, must be equal to uv_handle_type values in uv.h.
+ *
+ * @see PipeHandle#pendingType()
+ * @see LoopMetrics#getHandleCount(HandleType)
+ */
+public enum HandleType {
+    /**
+     * No handle is pending.
+     */
+    UV_UNKNOWN_HANDLE(0),
+    UV_ASYNC(1),
+    UV_CHECK(2),
+    UV_FS_EVENT(3),
+    UV_FS_POLL(4),
+    UV_HANDLE(5),
+    UV_IDLE(6),
+    UV_NAMED_PIPE(7),
+    UV_POLL(8),
+    UV_PREPARE(9),
+    UV_PROCESS(10),
+    UV_STREAM(11),
+    UV_TCP(12),
+    UV_TIMER(13),
+    UV_TTY(14),
+    UV_UDP(15),
+    UV_SIGNAL(16);
+
+    // uv_handle_type includes UV_FILE before UV_HANDLE_TYPE_MAX
+    static final int MAX = 18;
+
+    public final int value;
+
+    private HandleType(int value) {
+        this.value = value;
+    }
+
+    static HandleType valueOf(final int value) {
+        for (final HandleType type : values()) {
+            if (type.value == value) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("handle type " + value);
+    }
+
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
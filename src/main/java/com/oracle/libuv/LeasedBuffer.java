@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read buffer backed by the native memory libuv read into.
+ * <p>
+ * The memory is owned by the application until {@link #release()} is called,
+ * after which it goes back to the buffer pool of the loop. Any
+ * {@link ByteBuffer} obtained from {@link #buffer()} must not be used after
+ * release. Leases must be released on the loop thread, before the loop is
+ * destroyed.
+ */
+public final class LeasedBuffer {
+
+    private final StreamHandle handle;
+
+    private final ByteBuffer buffer;
+
+    private long address;
+
+    LeasedBuffer(final StreamHandle handle,
+                 final ByteBuffer   buffer,
+                 final long         address) {
+        this.handle = handle;
+        this.buffer = buffer;
+        this.address = address;
+    }
+
+    /**
+     * @return the data read, positioned at {@code 0} with the limit set to the
+     *         number of bytes read.
+     */
+    public ByteBuffer buffer() {
+        if (address == 0) {
+            throw new IllegalStateException("lease already released");
+        }
+        return buffer;
+    }
+
+    public boolean isReleased() {
+        return address == 0;
+    }
+
+    /**
+     * Give the native memory back to the loop. Releasing more than once has no
+     * effect.
+     */
+    public void release() {
+        if (address != 0) {
+            final long base = address;
+            address = 0;
+            handle.releaseLease(base);
+        }
+    }
+}
@@ -5,16 +5,52 @@ import static java.lang.Boolean.TRUE;
 
 public class LibUVConfiguration {
 
+    static final int DEFAULT_BUFFER_POOL_SLAB_SIZE = 64 * 1024;
+
+    static final long DEFAULT_BUFFER_POOL_MAX_BYTES = 4 * 1024 * 1024;
+
+    static final long DEFAULT_BUFFER_POOL_HANDLE_CAP = 1024 * 1024;
+
+    static final int DEFAULT_BATCHED_DISPATCH_ARENA_SIZE = 1024 * 1024;
+
     private Boolean useDirectByteBuffer;
 
     private Boolean copyBuffer;
 
+    private Integer bufferPoolSlabSize;
+
+    private Long bufferPoolMaxBytes;
+
+    private Long bufferPoolHandleCap;
+
+    private Integer batchedDispatchEvents;
+
+    private Integer batchedDispatchArenaSize;
+
+    private Long loopMetricsInterval;
+
+    private Integer addressCacheSize;
+
     public static class Builder {
 
         private Boolean useDirectByteBuffer;
 
         private Boolean copyBuffer;
 
+        private Integer bufferPoolSlabSize;
+
+        private Long bufferPoolMaxBytes;
+
+        private Long bufferPoolHandleCap;
+
+        private Integer batchedDispatchEvents;
+
+        private Integer batchedDispatchArenaSize;
+
+        private Long loopMetricsInterval;
+
+        private Integer addressCacheSize;
+
         public Builder useDirectByteBuffer(Boolean useDirectByteBuffer) {
             this.useDirectByteBuffer = useDirectByteBuffer;
             return this;
@@ -25,6 +61,75 @@ public class LibUVConfiguration {
             return this;
         }
 
+        /**
+         * Size of the native blocks handed to stream reads and udp receives.
+         * Datagrams larger than the slab are truncated.
+         */
+        public Builder bufferPoolSlabSize(Integer bufferPoolSlabSize) {
+            this.bufferPoolSlabSize = bufferPoolSlabSize;
+            return this;
+        }
+
+        /**
+         * Upper bound of idle bytes the loop keeps on its free list, {@code 0}
+         * disables pooling.
+         */
+        public Builder bufferPoolMaxBytes(Long bufferPoolMaxBytes) {
+            this.bufferPoolMaxBytes = bufferPoolMaxBytes;
+            return this;
+        }
+
+        /**
+         * Upper bound of pooled bytes a single handle may hold at once, reads
+         * over the cap fall back to unpooled blocks.
+         */
+        public Builder bufferPoolHandleCap(Long bufferPoolHandleCap) {
+            this.bufferPoolHandleCap = bufferPoolHandleCap;
+            return this;
+        }
+
+        /**
+         * Capacity of the ring in which stream reads and write completions
+         * are recorded during a loop iteration and delivered to java with a
+         * single upcall, {@code 0} disables batched dispatch.
+         */
+        public Builder batchedDispatchEvents(Integer batchedDispatchEvents) {
+            this.batchedDispatchEvents = batchedDispatchEvents;
+            return this;
+        }
+
+        /**
+         * Size of the native arena batched stream reads land in, it must hold
+         * at least one buffer pool slab.
+         */
+        public Builder batchedDispatchArenaSize(Integer batchedDispatchArenaSize) {
+            this.batchedDispatchArenaSize = batchedDispatchArenaSize;
+            return this;
+        }
+
+        /**
+         * Interval in milliseconds at which the loop publishes its metrics,
+         * {@code 0} disables them.
+         *
+         * @see LoopHandle#getMetrics(LoopMetrics)
+         */
+        public Builder loopMetricsInterval(Long loopMetricsInterval) {
+            this.loopMetricsInterval = loopMetricsInterval;
+            return this;
+        }
+
+        /**
+         * Number of recently seen peer addresses a loop keeps, rounded up to
+         * a power of two, {@code 0} disables the cache. With the cache udp
+         * receives and {@link TCPHandle#getPeerName()} report a peer seen
+         * before with the same {@link Address}, whose ip is only formatted
+         * when asked for.
+         */
+        public Builder addressCacheSize(Integer addressCacheSize) {
+            this.addressCacheSize = addressCacheSize;
+            return this;
+        }
+
         public LibUVConfiguration build() {
             LibUVConfiguration configuration = new LibUVConfiguration();
             if (copyBuffer == null) {
@@ -33,8 +138,57 @@ public class LibUVConfiguration {
             if (useDirectByteBuffer == null) {
             	useDirectByteBuffer = FALSE;
             }
+            if (bufferPoolSlabSize == null) {
+                bufferPoolSlabSize = DEFAULT_BUFFER_POOL_SLAB_SIZE;
+            }
+            if (bufferPoolMaxBytes == null) {
+                bufferPoolMaxBytes = DEFAULT_BUFFER_POOL_MAX_BYTES;
+            }
+            if (bufferPoolHandleCap == null) {
+                bufferPoolHandleCap = DEFAULT_BUFFER_POOL_HANDLE_CAP;
+            }
+            if (batchedDispatchEvents == null) {
+                batchedDispatchEvents = 0;
+            }
+            if (batchedDispatchArenaSize == null) {
+                batchedDispatchArenaSize = Math.max(DEFAULT_BATCHED_DISPATCH_ARENA_SIZE, bufferPoolSlabSize);
+            }
+            if (loopMetricsInterval == null) {
+                loopMetricsInterval = 0L;
+            }
+            if (addressCacheSize == null) {
+                addressCacheSize = 0;
+            }
+            if (bufferPoolSlabSize <= 0) {
+                throw new IllegalArgumentException("bufferPoolSlabSize");
+            }
+            if (bufferPoolMaxBytes < 0) {
+                throw new IllegalArgumentException("bufferPoolMaxBytes");
+            }
+            if (bufferPoolHandleCap < 0) {
+                throw new IllegalArgumentException("bufferPoolHandleCap");
+            }
+            if (batchedDispatchEvents < 0) {
+                throw new IllegalArgumentException("batchedDispatchEvents");
+            }
+            if (batchedDispatchArenaSize < bufferPoolSlabSize) {
+                throw new IllegalArgumentException("batchedDispatchArenaSize");
+            }
+            if (loopMetricsInterval < 0) {
+                throw new IllegalArgumentException("loopMetricsInterval");
+            }
+            if (addressCacheSize < 0 || addressCacheSize > 1 << 30) {
+                throw new IllegalArgumentException("addressCacheSize");
+            }
             configuration.useDirectByteBuffer = useDirectByteBuffer;
             configuration.copyBuffer = copyBuffer;
+            configuration.bufferPoolSlabSize = bufferPoolSlabSize;
+            configuration.bufferPoolMaxBytes = bufferPoolMaxBytes;
+            configuration.bufferPoolHandleCap = bufferPoolHandleCap;
+            configuration.batchedDispatchEvents = batchedDispatchEvents;
+            configuration.batchedDispatchArenaSize = batchedDispatchArenaSize;
+            configuration.loopMetricsInterval = loopMetricsInterval;
+            configuration.addressCacheSize = addressCacheSize;
             return configuration;
         }
     }
@@ -51,8 +205,40 @@ public class LibUVConfiguration {
         return copyBuffer;
     }
 
+    public Integer bufferPoolSlabSize() {
+        return bufferPoolSlabSize;
+    }
+
+    public Long bufferPoolMaxBytes() {
+        return bufferPoolMaxBytes;
+    }
+
+    public Long bufferPoolHandleCap() {
+        return bufferPoolHandleCap;
+    }
+
+    public Integer batchedDispatchEvents() {
+        return batchedDispatchEvents;
+    }
+
+    public Integer batchedDispatchArenaSize() {
+        return batchedDispatchArenaSize;
+    }
+
+    public Long loopMetricsInterval() {
+        return loopMetricsInterval;
+    }
+
+    public Integer addressCacheSize() {
+        return addressCacheSize;
+    }
+
     @Override
     public String toString() {
-        return "LibUVConfiguration [useDirectByteBuffer=" + useDirectByteBuffer + ", copyBuffer=" + copyBuffer + "]";
+        return "LibUVConfiguration [useDirectByteBuffer=" + useDirectByteBuffer + ", copyBuffer=" + copyBuffer
+                + ", bufferPoolSlabSize=" + bufferPoolSlabSize + ", bufferPoolMaxBytes=" + bufferPoolMaxBytes
+                + ", bufferPoolHandleCap=" + bufferPoolHandleCap + ", batchedDispatchEvents=" + batchedDispatchEvents
+                + ", batchedDispatchArenaSize=" + batchedDispatchArenaSize
+                + ", loopMetricsInterval=" + loopMetricsInterval + ", addressCacheSize=" + addressCacheSize + "]";
     }
 }
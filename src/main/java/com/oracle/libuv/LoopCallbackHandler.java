@@ -34,47 +34,96 @@ public final class LoopCallbackHandler implements CallbackHandler {
 
 	private final LibUVConfiguration configuration;
 
+    // exceptions passed to the handler, only touched from the loop thread
+    private long exceptions;
+
+    // set while a stall detector watches the loop, null otherwise
+    private volatile LoopStallDetector stallDetector;
+
     LoopCallbackHandler(final CallbackExceptionHandler exceptionHandler, LibUVConfiguration configuration) {
-        this.exceptionHandler = exceptionHandler;
+        this.exceptionHandler = new CallbackExceptionHandler() {
+            @Override
+            public void handle(final Throwable ex) {
+                exceptions++;
+                exceptionHandler.handle(ex);
+            }
+        };
         this.configuration = configuration;
     }
 
+    long exceptions() {
+        return exceptions;
+    }
+
+    void setStallDetector(final LoopStallDetector detector) {
+        if (detector != null && stallDetector != null) {
+            throw new IllegalStateException("the loop is already watched by a stall detector");
+        }
+        stallDetector = detector;
+    }
+
+    private LoopStallDetector enter(final String type, final Object cb) {
+        final LoopStallDetector detector = stallDetector;
+        if (detector != null) {
+            detector.enter(type, cb);
+        }
+        return detector;
+    }
+
+    private static void exit(final LoopStallDetector detector) {
+        if (detector != null) {
+            detector.exit();
+        }
+    }
+
     @Override
     public void handleAsyncCallback(final AsyncCallback cb,
                                     final int           status) {
+        final LoopStallDetector detector = enter("AsyncCallback", cb);
         try {
             cb.onSend(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleCheckCallback(final CheckCallback cb,
                                     final int           status) {
+        final LoopStallDetector detector = enter("CheckCallback", cb);
         try {
             cb.onCheck(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleCheckCallback(CloseCallback cb, int status) {
+        final LoopStallDetector detector = enter("CloseCallback", cb);
         try {
             cb.onClose(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handlePrepareCallback(final PrepareCallback cb,
                                       final int             status) {
+        final LoopStallDetector detector = enter("PrepareCallback", cb);
         try {
             cb.onPrepare(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -82,16 +131,20 @@ public final class LoopCallbackHandler implements CallbackHandler {
     @Override
     public void handlePrepareCallback(final CloseCallback cb,
                                       final int           status) {
+        final LoopStallDetector detector = enter("CloseCallback", cb);
         try {
             cb.onClose(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleStreamReadCallback(final StreamReadCallback cb,
                                          final ByteBuffer         data) {
+        final LoopStallDetector detector = enter("StreamReadCallback", cb);
         try {
             if (data != null) {
                 ByteBuffer buffer = clone(data);
@@ -101,6 +154,47 @@ public final class LoopCallbackHandler implements CallbackHandler {
             }
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
+        }
+    }
+
+    @Override
+    public void handleStreamLeasedReadCallback(final StreamLeasedReadCallback cb,
+                                               final LeasedBuffer             buffer) {
+        final LoopStallDetector detector = enter("StreamLeasedReadCallback", cb);
+        try {
+            cb.onRead(buffer);
+        } catch (final Exception ex) {
+            exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
+        }
+    }
+
+    @Override
+    public void handleStreamProvidedReadCallback(final StreamReadCallback cb,
+                                                 final ByteBuffer         data) {
+        final LoopStallDetector detector = enter("StreamReadCallback", cb);
+        try {
+            // the buffer belongs to the application, never copied
+            cb.onRead(data);
+        } catch (final Exception ex) {
+            exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
+        }
+    }
+
+    @Override
+    public void handleStreamNoBufferCallback(final StreamNoBufferCallback cb) {
+        final LoopStallDetector detector = enter("StreamNoBufferCallback", cb);
+        try {
+            cb.onNoBuffer();
+        } catch (final Exception ex) {
+            exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -120,10 +214,26 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleStreamWriteCallback(final StreamWriteCallback cb,
                                           final int                 status,
                                           final Exception           error) {
+        final LoopStallDetector detector = enter("StreamWriteCallback", cb);
         try {
             cb.onWrite(status, error);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
+        }
+    }
+
+    @Override
+    public void handleStreamWritabilityCallback(final StreamWritabilityCallback cb,
+                                                final boolean                   writable) {
+        final LoopStallDetector detector = enter("StreamWritabilityCallback", cb);
+        try {
+            cb.onWritabilityChanged(writable);
+        } catch (final Exception ex) {
+            exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -131,10 +241,13 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleStreamConnectCallback(final StreamConnectCallback cb,
                                             final int                   status,
                                             final Exception             error) {
+        final LoopStallDetector detector = enter("StreamConnectCallback", cb);
         try {
             cb.onConnect(status, error);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -142,19 +255,25 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleStreamConnectionCallback(final StreamConnectionCallback cb,
                                                final int                      status,
             final Exception error) {
+        final LoopStallDetector detector = enter("StreamConnectionCallback", cb);
         try {
             cb.onConnection(status, error);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleStreamCloseCallback(final StreamCloseCallback cb) {
+        final LoopStallDetector detector = enter("StreamCloseCallback", cb);
         try {
             cb.onClose();
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -162,19 +281,25 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleStreamShutdownCallback(final StreamShutdownCallback cb,
                                              final int                    status,
                                              final Exception              error) {
+        final LoopStallDetector detector = enter("StreamShutdownCallback", cb);
         try {
             cb.onShutdown(status, error);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleProcessCloseCallback(final ProcessCloseCallback cb) {
+        final LoopStallDetector detector = enter("ProcessCloseCallback", cb);
         try {
             cb.onClose();
         } catch (Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -183,20 +308,26 @@ public final class LoopCallbackHandler implements CallbackHandler {
                                           final int                  status,
                                           final int                  signal,
                                           final Exception            error) {
+        final LoopStallDetector detector = enter("ProcessExitCallback", cb);
         try {
             cb.onExit(status, signal, error);
         } catch (Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleTimerCallback(final TimerCallback cb,
                                     final int           status) {
+        final LoopStallDetector detector = enter("TimerCallback", cb);
         try {
             cb.onTimer(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -204,10 +335,13 @@ public final class LoopCallbackHandler implements CallbackHandler {
     @Override
     public void handleTimerCallback(final CloseCallback cb,
                                     final int           status) {
+        final LoopStallDetector detector = enter("CloseCallback", cb);
         try {
             cb.onClose(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -216,6 +350,7 @@ public final class LoopCallbackHandler implements CallbackHandler {
                                       final int nread,
                                       final     ByteBuffer data,
                                       final Address address) {
+        final LoopStallDetector detector = enter("UDPRecvCallback", cb);
         try {
             if (data != null) {
                 ByteBuffer buffer = clone(data);
@@ -225,6 +360,23 @@ public final class LoopCallbackHandler implements CallbackHandler {
             }
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
+        }
+    }
+
+    @Override
+    public void handleUDPRecvBatchCallback(final UDPRecvBatchCallback cb,
+                                           final int                  status,
+                                           final UDPRecvBatch         batch) {
+        final LoopStallDetector detector = enter("UDPRecvBatchCallback", cb);
+        try {
+            // the batch is only valid during the callback, never copied
+            cb.onRecv(status, batch);
+        } catch (final Exception ex) {
+            exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -232,39 +384,51 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleUDPSendCallback(final     UDPSendCallback cb,
                                       final int status,
                                       final     Exception error) {
+        final LoopStallDetector detector = enter("UDPSendCallback", cb);
         try {
             cb.onSend(status, error);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleUDPCloseCallback(final UDPCloseCallback cb) {
+        final LoopStallDetector detector = enter("UDPCloseCallback", cb);
         try {
             cb.onClose();
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleIdleCallback(final     IdleCallback cb,
                                    final int status) {
+        final LoopStallDetector detector = enter("IdleCallback", cb);
         try {
             cb.onIdle(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
     @Override
     public void handleIdleCallback(final CloseCallback cb,
                                    final int           status) {
+        final LoopStallDetector detector = enter("CloseCallback", cb);
         try {
             cb.onClose(status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 
@@ -272,10 +436,13 @@ public final class LoopCallbackHandler implements CallbackHandler {
     public void handleDnsCallback(final DnsCallback cb,
                                   final Address     address,
                                   final int         status) {
+        final LoopStallDetector detector = enter("DnsCallback", cb);
         try {
             cb.onAddress(address, status);
         } catch (final Exception ex) {
             exceptionHandler.handle(ex);
+        } finally {
+            exit(detector);
         }
     }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks submitted from any thread on the thread of a loop.
+ * <p>
+ * Tasks are kept on a lock-free multi-producer single-consumer queue and the
+ * loop is woken up through an {@link AsyncHandle}, at most once per pending
+ * drain. Each wakeup runs up to a batch of tasks, the remainder is left for
+ * the next loop iteration so that i/o is not starved.
+ */
+public final class LoopExecutor implements Executor {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final class Node {
+
+        Runnable task;
+
+        volatile Node next;
+
+        Node(final Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private final LoopHandle loop;
+
+    private final AsyncHandle wakeup;
+
+    private final int batchSize;
+
+    // producers swap their node in at the tail, only the loop thread moves the head
+    private final AtomicReference<Node> tail;
+
+    private Node head;
+
+    private final AtomicBoolean signalled = new AtomicBoolean();
+
+    private final AtomicInteger producers = new AtomicInteger();
+
+    private volatile boolean shutdown;
+
+    private final LongAdder submitted = new LongAdder();
+
+    // written by the loop thread only
+    private volatile long executed;
+
+    private volatile long wakeups;
+
+    private volatile long largestBatch;
+
+    LoopExecutor(final LoopHandle loop,
+                 final int        batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize");
+        }
+        this.loop = loop;
+        this.batchSize = batchSize;
+        this.head = new Node(null);
+        this.tail = new AtomicReference<>(head);
+        this.wakeup = new AsyncHandle(loop);
+        wakeup.setAsyncCallback(status -> drain());
+    }
+
+    /**
+     * Queue a task to run on the loop thread. It's safe to call this function
+     * from <strong>any thread</strong>.
+     *
+     * @throws RejectedExecutionException if the executor was shut down.
+     */
+    @Override
+    public void execute(final Runnable task) {
+        requireNonNull(task);
+        producers.incrementAndGet();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("executor shut down");
+            }
+            final Node node = new Node(task);
+            tail.getAndSet(node).next = node;
+            submitted.increment();
+            // checked after the node is linked, a drain that missed it clears
+            // the flag before it looks at the queue. Still counted as a
+            // producer, shutdownNow() does not free the handle under the send
+            if (!signalled.get() && signalled.compareAndSet(false, true)) {
+                wakeup.send();
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the maximum number of tasks run per wakeup.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Let the loop exit while the executor is open, see {@link Handle#unref()}.
+     */
+    public void unref() {
+        wakeup.unref();
+    }
+
+    public void ref() {
+        wakeup.ref();
+    }
+
+    /**
+     * Counters of the executor, can be read from any thread.
+     */
+    public LoopExecutorStats getStats() {
+        final long executed = this.executed;
+        return new LoopExecutorStats(Math.max(submitted.sum(), executed), executed, wakeups, largestBatch);
+    }
+
+    /**
+     * Stop accepting tasks and close the async handle. Must be called on the
+     * loop thread.
+     *
+     * @return the tasks that were accepted but did not run.
+     */
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        // a producer that saw the executor open finishes linking its node and
+        // its wakeup before the handle goes away
+        while (producers.get() != 0) {
+            Thread.yield();
+        }
+        wakeup.close();
+        final List<Runnable> pending = new ArrayList<>();
+        for (Node next = head.next; next != null; next = head.next) {
+            pending.add(next.task);
+            next.task = null;
+            head = next;
+        }
+        return pending;
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private void drain() {
+        signalled.set(false);
+        int count = 0;
+        while (count < batchSize) {
+            final Node next = head.next;
+            if (next == null) {
+                break;
+            }
+            final Runnable task = next.task;
+            next.task = null;
+            head = next;
+            count++;
+            try {
+                task.run();
+            } catch (final Throwable ex) {
+                loop.getExceptionHandler().handle(ex);
+            }
+        }
+        executed += count;
+        wakeups++;
+        if (count > largestBatch) {
+            largestBatch = count;
+        }
+        // the rest of the queue runs after the pending i/o
+        if (head.next != null && !shutdown && signalled.compareAndSet(false, true)) {
+            wakeup.send();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+/**
+ * Snapshot of the counters of a {@link LoopExecutor}.
+ */
+public class LoopExecutorStats {
+
+    private final long submitted;
+
+    private final long executed;
+
+    private final long wakeups;
+
+    private final long largestBatch;
+
+    LoopExecutorStats(final long submitted,
+                      final long executed,
+                      final long wakeups,
+                      final long largestBatch) {
+        this.submitted = submitted;
+        this.executed = executed;
+        this.wakeups = wakeups;
+        this.largestBatch = largestBatch;
+    }
+
+    /**
+     * @return number of tasks accepted by the executor.
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return number of tasks that ran on the loop thread.
+     */
+    public long getExecuted() {
+        return executed;
+    }
+
+    /**
+     * @return number of tasks accepted but not run yet.
+     */
+    public long getPending() {
+        return submitted - executed;
+    }
+
+    /**
+     * @return number of times the loop drained the queue, several submits
+     *         share a wakeup.
+     */
+    public long getWakeups() {
+        return wakeups;
+    }
+
+    /**
+     * @return most tasks run in a single wakeup.
+     */
+    public long getLargestBatch() {
+        return largestBatch;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopExecutorStats [submitted=" + submitted + ", executed=" + executed + ", wakeups=" + wakeups
+                + ", largestBatch=" + largestBatch + "]";
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Runs one {@link LoopHandle} per thread and spreads a tcp server across
+ * them, either with a reuse-port listener per loop or with a single acceptor
+ * loop that passes connections to the others over ipc pipes.
+ * <p>
+ * Handles belong to the thread they are created on, so everything that
+ * touches a loop of the group goes through {@link #submit(int, Function)},
+ * which runs the task on that loop's thread.
+ */
+public final class LoopGroup implements Closeable {
+
+    /**
+     * How the acceptor loop picks the loop a connection is dispatched to.
+     */
+    public enum DispatchPolicy {
+        /**
+         * Every loop in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * The loop with the fewest open dispatched connections.
+         */
+        LEAST_CONNECTIONS
+    }
+
+    private final LibUVConfiguration configuration;
+
+    private final CallbackExceptionHandler exceptionHandler;
+
+    private final Worker[] workers;
+
+    private final AtomicLongArray connections;
+
+    private final AtomicLongArray openConnections;
+
+    private boolean started;
+
+    /**
+     * One loop per available processor.
+     */
+    public LoopGroup() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public LoopGroup(final int size) {
+        this(size, LibUVConfiguration.builder().build());
+    }
+
+    public LoopGroup(final int                size,
+                     final LibUVConfiguration configuration) {
+        this(size, configuration, null);
+    }
+
+    /**
+     * @param exceptionHandler receives what callbacks throw, from any of the
+     *        loop threads. Without one the exceptions go to the uncaught
+     *        exception handler of the loop thread.
+     */
+    public LoopGroup(final int                      size,
+                     final LibUVConfiguration       configuration,
+                     final CallbackExceptionHandler exceptionHandler) {
+        requireNonNull(configuration);
+        if (size <= 0) {
+            throw new IllegalArgumentException("size");
+        }
+        this.configuration = configuration;
+        this.exceptionHandler = exceptionHandler != null ? exceptionHandler : ex -> {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        };
+        this.connections = new AtomicLongArray(size);
+        this.openConnections = new AtomicLongArray(size);
+        this.workers = new Worker[size];
+        for (int i = 0; i < size; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    /**
+     * Start the loop threads and wait until every loop is ready.
+     */
+    public synchronized void start() throws Exception {
+        if (started) {
+            throw new IllegalStateException("already started");
+        }
+        started = true;
+        for (final Worker worker : workers) {
+            worker.thread.start();
+        }
+        for (final Worker worker : workers) {
+            worker.ready.await();
+            if (worker.failure != null) {
+                close();
+                throw new IllegalStateException("loop " + worker.index + " failed to start", worker.failure);
+            }
+        }
+    }
+
+    /**
+     * Run a task on the thread of a loop.
+     *
+     * @return completes with the result of the task, or exceptionally with a
+     *         {@link RejectedExecutionException} if the loop has terminated.
+     */
+    public <T> CompletableFuture<T> submit(final int                        index,
+                                           final Function<HandleFactory, T> task) {
+        requireNonNull(task);
+        synchronized (this) {
+            if (!started) {
+                throw new IllegalStateException("not started");
+            }
+        }
+        return workers[index].submit(task);
+    }
+
+    /**
+     * Bind a listener with {@link TcpFlags#UV_TCP_REUSEPORT} on every loop,
+     * the kernel then spreads incoming connections across the loops.
+     * <p>
+     * If a loop fails to bind, the first failure is thrown; the loops that did
+     * bind keep listening until {@link #shutdown()}.
+     */
+    public void listen(final String                  address,
+                       final int                     port,
+                       final boolean                 ipv6,
+                       final int                     backlog,
+                       final GroupConnectionCallback callback) throws Exception {
+        requireNonNull(address);
+        requireNonNull(callback);
+        final List<CompletableFuture<TCPHandle>> listeners = new ArrayList<>(workers.length);
+        for (final Worker worker : workers) {
+            listeners.add(submit(worker.index, factory -> worker.listen(factory, address, port, ipv6, backlog, callback)));
+        }
+        for (final CompletableFuture<TCPHandle> listener : listeners) {
+            try {
+                listener.get();
+            } catch (final ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                throw cause instanceof Exception ? (Exception) cause : ex;
+            }
+        }
+    }
+
+    /**
+     * Bind a single listener on the first loop, which accepts the connections
+     * and passes each one to a loop of the group picked by the policy.
+     * <p>
+     * Connections go to the other loops over ipc pipes, which is not supported
+     * on Windows.
+     */
+    public void listen(final String                       address,
+                       final int                          port,
+                       final boolean                      ipv6,
+                       final int                          backlog,
+                       final DispatchPolicy               policy,
+                       final DispatchedConnectionCallback callback) throws Exception {
+        requireNonNull(address);
+        requireNonNull(policy);
+        requireNonNull(callback);
+        final int[] acceptorFds = new int[workers.length];
+        final List<CompletableFuture<PipeHandle>> receivers = new ArrayList<>(workers.length);
+        // the receiving ends read before the acceptor can send anything
+        for (int i = 1; i < workers.length; i++) {
+            final Worker worker = workers[i];
+            final int[] fds = PipeHandle.socketPair();
+            acceptorFds[i] = fds[0];
+            receivers.add(submit(i, factory -> worker.receive(factory, fds[1], callback)));
+        }
+        try {
+            for (final CompletableFuture<PipeHandle> receiver : receivers) {
+                receiver.get();
+            }
+            final Worker acceptor = workers[0];
+            submit(0, factory -> acceptor.dispatch(factory, address, port, ipv6, backlog, acceptorFds, policy, callback)).get();
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ex;
+        }
+    }
+
+    /**
+     * @return the connections the kernel handed to the listener of a loop, or
+     *         that were dispatched to it.
+     */
+    public long getConnections(final int index) {
+        return connections.get(index);
+    }
+
+    /**
+     * @return the connections dispatched to a loop that are not closed yet.
+     */
+    public long getOpenConnections(final int index) {
+        return openConnections.get(index);
+    }
+
+    /**
+     * Counters of the buffer pool of a loop, read on its thread.
+     */
+    public BufferPoolStats getBufferPoolStats(final int index) throws Exception {
+        return submit(index, factory -> factory.getLoopHandle().getBufferPoolStats()).get();
+    }
+
+    /**
+     * Close the listeners and let every loop terminate once the handles it
+     * still has, such as accepted connections, are closed.
+     */
+    public void shutdown() {
+        for (final Worker worker : workers) {
+            worker.submitIfRunning(worker::drain);
+        }
+    }
+
+    /**
+     * @return {@code true} if every loop terminated within the timeout.
+     */
+    public boolean awaitTermination(final long     timeout,
+                                    final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final Worker worker : workers) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0 && worker.thread.isAlive()) {
+                return false;
+            }
+            worker.thread.join(Math.max(1, remaining));
+            if (worker.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Close every handle of every loop and wait for the loop threads to
+     * terminate.
+     */
+    @Override
+    public void close() {
+        for (final Worker worker : workers) {
+            worker.submitIfRunning(worker::abort);
+        }
+        try {
+            for (final Worker worker : workers) {
+                if (worker.thread.getState() != Thread.State.NEW) {
+                    worker.thread.join();
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private static final class Task<T> implements Runnable {
+
+        final Function<HandleFactory, T> body;
+
+        final HandleFactory factory;
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(final Function<HandleFactory, T> body,
+             final HandleFactory              factory) {
+            this.body = body;
+            this.factory = factory;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(body.apply(factory));
+            } catch (final Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+
+        void reject() {
+            future.completeExceptionally(new RejectedExecutionException("loop terminated"));
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        final int index;
+
+        final Thread thread;
+
+        final CountDownLatch ready = new CountDownLatch(1);
+
+        // only touched on the loop thread
+        final List<StreamHandle> listeners = new ArrayList<>();
+
+        // next loop to dispatch to, only used on the acceptor loop
+        int cursor;
+
+        volatile Throwable failure;
+
+        HandleFactory factory;
+
+        // null until the loop runs and once it terminates
+        volatile LoopExecutor executor;
+
+        Worker(final int index) {
+            this.index = index;
+            this.thread = new Thread(this, "libuv-loop-" + index);
+        }
+
+        <T> CompletableFuture<T> submit(final Function<HandleFactory, T> body) {
+            final LoopExecutor executor = this.executor;
+            final Task<T> task = new Task<>(body, factory);
+            if (executor == null) {
+                task.reject();
+            } else {
+                try {
+                    executor.execute(task);
+                } catch (final RejectedExecutionException ex) {
+                    task.reject();
+                }
+            }
+            return task.future;
+        }
+
+        void submitIfRunning(final Runnable body) {
+            submit(factory -> {
+                body.run();
+                return null;
+            });
+        }
+
+        TCPHandle listen(final HandleFactory           factory,
+                         final String                  address,
+                         final int                     port,
+                         final boolean                 ipv6,
+                         final int                     backlog,
+                         final GroupConnectionCallback callback) {
+            final TCPHandle listener = factory.newTCPHandle();
+            listener.setConnectionCallback((status, error) -> {
+                if (error != null) {
+                    throw error;
+                }
+                connections.incrementAndGet(index);
+                callback.onConnection(factory, listener);
+            });
+            try {
+                listener.bind(address, port, ipv6, EnumSet.of(TcpFlags.UV_TCP_REUSEPORT));
+                listener.listen(backlog);
+            } catch (final RuntimeException ex) {
+                listener.close();
+                throw ex;
+            }
+            listeners.add(listener);
+            return listener;
+        }
+
+        PipeHandle receive(final HandleFactory                factory,
+                           final int                          fd,
+                           final DispatchedConnectionCallback callback) {
+            final PipeHandle pipe = factory.newPipeHandle(true);
+            try {
+                pipe.open(fd);
+            } catch (final RuntimeException ex) {
+                pipe.close();
+                throw ex;
+            }
+            pipe.setReadCallback(data -> {
+                if (data == null) {
+                    // the acceptor is gone
+                    pipe.close();
+                    return;
+                }
+                while (pipe.pendingCount() > 0) {
+                    final TCPHandle connection = factory.newTCPHandle();
+                    pipe.accept(connection);
+                    serve(factory, connection, callback);
+                }
+            });
+            pipe.readStart();
+            listeners.add(pipe);
+            return pipe;
+        }
+
+        TCPHandle dispatch(final HandleFactory                factory,
+                           final String                       address,
+                           final int                          port,
+                           final boolean                      ipv6,
+                           final int                          backlog,
+                           final int[]                        fds,
+                           final DispatchPolicy               policy,
+                           final DispatchedConnectionCallback callback) {
+            final PipeHandle[] pipes = new PipeHandle[workers.length];
+            // connections on their way to a loop, in the order they were sent
+            final List<Queue<TCPHandle>> sending = new ArrayList<>(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                sending.add(new ArrayDeque<>());
+            }
+            for (int i = 1; i < workers.length; i++) {
+                final int target = i;
+                final PipeHandle pipe = factory.newPipeHandle(true);
+                try {
+                    pipe.open(fds[i]);
+                } catch (final RuntimeException ex) {
+                    pipe.close();
+                    throw ex;
+                }
+                // write callbacks of a stream complete in order, cancelled
+                // ones included when the pipe is closed
+                pipe.setWriteCallback((status, error) -> {
+                    sending.get(target).poll().close();
+                    if (error != null) {
+                        openConnections.decrementAndGet(target);
+                        if (!pipe.isClosing()) {
+                            throw error;
+                        }
+                    }
+                });
+                pipes[i] = pipe;
+                listeners.add(pipe);
+            }
+            final TCPHandle listener = factory.newTCPHandle();
+            listener.setConnectionCallback((status, error) -> {
+                if (error != null) {
+                    throw error;
+                }
+                final TCPHandle connection = factory.newTCPHandle();
+                listener.accept(connection);
+                final int target = next(policy);
+                // counted before the target accepts, so that the next pick sees it
+                openConnections.incrementAndGet(target);
+                if (target == index) {
+                    serve(factory, connection, callback);
+                } else {
+                    try {
+                        pipes[target].writeHandle(connection);
+                    } catch (final RuntimeException ex) {
+                        openConnections.decrementAndGet(target);
+                        connection.close();
+                        throw ex;
+                    }
+                    sending.get(target).add(connection);
+                }
+            });
+            try {
+                listener.bind(address, port, ipv6);
+                listener.listen(backlog);
+            } catch (final RuntimeException ex) {
+                listener.close();
+                throw ex;
+            }
+            listeners.add(listener);
+            return listener;
+        }
+
+        private int next(final DispatchPolicy policy) {
+            final int start = cursor;
+            cursor = (cursor + 1) % workers.length;
+            if (policy == DispatchPolicy.ROUND_ROBIN) {
+                return start;
+            }
+            // ties go to the loops after the previous pick
+            int target = start;
+            for (int i = 1; i < workers.length; i++) {
+                final int candidate = (start + i) % workers.length;
+                if (openConnections.get(candidate) < openConnections.get(target)) {
+                    target = candidate;
+                }
+            }
+            return target;
+        }
+
+        private void serve(final HandleFactory                factory,
+                           final TCPHandle                    connection,
+                           final DispatchedConnectionCallback callback) throws Exception {
+            connections.incrementAndGet(index);
+            connection.addCloseListener(() -> openConnections.decrementAndGet(index));
+            callback.onConnection(factory, connection);
+        }
+
+        void drain() {
+            for (final StreamHandle listener : listeners) {
+                listener.close();
+            }
+            listeners.clear();
+            // the loop runs as long as anything but the executor is alive
+            executor.unref();
+        }
+
+        void abort() {
+            listeners.clear();
+            terminate();
+            factory.getLoopHandle().closeAll();
+        }
+
+        private void terminate() {
+            final LoopExecutor executor = this.executor;
+            if (executor != null) {
+                this.executor = null;
+                for (final Runnable task : executor.shutdownNow()) {
+                    ((Task<?>) task).reject();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            final LoopHandle loop;
+            try {
+                loop = new LoopHandle(exceptionHandler,
+                                      new LoopCallbackHandlerFactory(exceptionHandler, configuration),
+                                      () -> null,
+                                      configuration);
+                factory = new DefaultHandleFactory(loop);
+                executor = factory.newLoopExecutor(LoopExecutor.DEFAULT_BATCH_SIZE);
+            } catch (final Throwable ex) {
+                failure = ex;
+                return;
+            } finally {
+                ready.countDown();
+            }
+            try {
+                loop.run();
+            } catch (final Throwable ex) {
+                exceptionHandler.handle(ex);
+            } finally {
+                terminate();
+                loop.closeAll();
+                try {
+                    loop.run();
+                } catch (final Throwable ex) {
+                    exceptionHandler.handle(ex);
+                }
+                loop.destroy();
+            }
+        }
+    }
+}
@@ -27,6 +27,10 @@ package com.oracle.libuv;
 import static com.oracle.libuv.NativeException.static_initialize;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 public class LoopHandle implements Closeable {
 
@@ -38,18 +42,72 @@ public class LoopHandle implements Closeable {
     // Track the number of created LoopHandles.
     private static int createdLoopCount ;
 
+    // must match struct EventBatch::Event in batch.h
+    private static final int EVENT_SIZE = 24;
+
+    private static final int EVENT_READ = 1;
+
+    private static final int EVENT_WRITE = 2;
+
     protected final CallbackExceptionHandler exceptionHandler;
 
     protected final CallbackHandlerFactory callbackHandlerFactory;
 
     protected final ContextProvider contextProvider;
 
+    protected final LibUVConfiguration configuration;
+
     private final long pointer;
 
     private Throwable pendingException;
 
     private boolean closed;
 
+    private long dispatchBatch;
+
+    private ByteBuffer dispatchEvents;
+
+    private ByteBuffer dispatchArena;
+
+    private StreamHandle[] batchedStreams;
+
+    private int batchedStreamCount;
+
+    private final ArrayDeque<Integer> freeBatchIds = new ArrayDeque<>();
+
+    private final RequestTable requests = new RequestTable();
+
+    private AddressCache addressCache;
+
+    // uv_loop_t.time, the cached loop clock
+    private ByteBuffer clock;
+
+    private long metrics;
+
+    // uv_handle_type indexed counts written by the native side before publishing
+    private ByteBuffer metricsCounts;
+
+    private LoopCallbackHandler metricsHandler;
+
+    // guards the last published metrics, not the loop itself so that
+    // applications locking the loop do not contend with the publish
+    private final Object metricsLock = new Object();
+
+    // last published metrics, guarded by metricsLock
+    private long iterations;
+
+    private long idleTime;
+
+    private long busyTime;
+
+    private long maxIterationTime;
+
+    private long pendingWriteBytes;
+
+    private long callbackExceptions;
+
+    private final int[] handleCounts = new int[HandleType.MAX];
+
     private enum RunMode {
 
         // must be equal to uv_run_mode values in uv.h
@@ -69,14 +127,28 @@ public class LoopHandle implements Closeable {
     public LoopHandle(final CallbackExceptionHandler exceptionHandler,
                       final CallbackHandlerFactory callbackHandler,
                       final ContextProvider contextProvider) {
+        this(exceptionHandler, callbackHandler, contextProvider, LibUVConfiguration.builder().build());
+    }
+
+    public LoopHandle(final CallbackExceptionHandler exceptionHandler,
+                      final CallbackHandlerFactory callbackHandler,
+                      final ContextProvider contextProvider,
+                      final LibUVConfiguration configuration) {
         newLoop();
-        this.pointer = _new();
+        this.pointer = _new(configuration.bufferPoolSlabSize(),
+                            configuration.bufferPoolMaxBytes(),
+                            configuration.bufferPoolHandleCap());
         assert pointer != 0;
         assert exceptionHandler != null;
+        this.configuration = configuration;
         this.exceptionHandler = exceptionHandler;
         this.callbackHandlerFactory = callbackHandler;
         this.contextProvider = contextProvider;
         closed = false;
+        clock = _clock(pointer).order(ByteOrder.nativeOrder());
+        initBatchedDispatch();
+        initAddressCache();
+        initMetrics();
     }
 
     public LoopHandle() {
@@ -85,8 +157,11 @@ public class LoopHandle implements Closeable {
 
     public LoopHandle(LibUVConfiguration configuration) {
         newLoop();
-        this.pointer = _new();
+        this.pointer = _new(configuration.bufferPoolSlabSize(),
+                            configuration.bufferPoolMaxBytes(),
+                            configuration.bufferPoolHandleCap());
         assert pointer != 0;
+        this.configuration = configuration;
 
         this.exceptionHandler = new CallbackExceptionHandler() {
             @Override
@@ -107,6 +182,39 @@ public class LoopHandle implements Closeable {
                 return null;
             }
         };
+        clock = _clock(pointer).order(ByteOrder.nativeOrder());
+        initBatchedDispatch();
+        initAddressCache();
+        initMetrics();
+    }
+
+    private void initBatchedDispatch() {
+        final int events = configuration.batchedDispatchEvents();
+        if (events > 0) {
+            dispatchEvents = ByteBuffer.allocateDirect(events * EVENT_SIZE).order(ByteOrder.nativeOrder());
+            dispatchArena = ByteBuffer.allocateDirect(configuration.batchedDispatchArenaSize());
+            batchedStreams = new StreamHandle[16];
+            dispatchBatch = _new_batch(pointer, dispatchEvents, events, dispatchArena, configuration.bufferPoolSlabSize());
+        }
+    }
+
+    private void initAddressCache() {
+        final int size = configuration.addressCacheSize();
+        if (size > 0) {
+            addressCache = new AddressCache(size);
+        }
+    }
+
+    private void initMetrics() {
+        final long interval = configuration.loopMetricsInterval();
+        if (interval > 0) {
+            final CallbackHandler handler = callbackHandlerFactory.newCallbackHandler();
+            if (handler instanceof LoopCallbackHandler) {
+                metricsHandler = (LoopCallbackHandler) handler;
+            }
+            metricsCounts = ByteBuffer.allocateDirect(HandleType.MAX * 4).order(ByteOrder.nativeOrder());
+            metrics = _new_metrics(pointer, metricsCounts, interval);
+        }
     }
 
     public CallbackHandler getCallbackHandler(final Object context) {
@@ -125,6 +233,10 @@ public class LoopHandle implements Closeable {
         return exceptionHandler;
     }
 
+    public LibUVConfiguration getConfiguration() {
+        return configuration;
+    }
+
     public boolean runNoWait() throws Throwable {
         throwPendingException();
         return _run(pointer, RunMode.NOWAIT.value) != 0;
@@ -154,21 +266,181 @@ public class LoopHandle implements Closeable {
     }
 
     public void destroy() {
+        clock = null;
+        // the loop only closes once its internal handles are closed and
+        // their close callbacks, which free them, have run
+        if (metrics != 0 || dispatchBatch != 0) {
+            // handles the application closed go first, their close callbacks
+            // still dispatch batched events
+            _run(pointer, RunMode.NOWAIT.value);
+            if (metrics != 0) {
+                _close_metrics(metrics);
+                metrics = 0;
+            }
+            if (dispatchBatch != 0) {
+                _close_batch(dispatchBatch);
+                dispatchBatch = 0;
+            }
+            _run(pointer, RunMode.NOWAIT.value);
+        }
         _destroy(pointer);
     }
 
     public void closeAll() {
-        _close_all(pointer);
+        _close_all(pointer, metrics, dispatchBatch);
+    }
+
+    /**
+     * The cached time of the loop in milliseconds, see {@code uv_now}.
+     * <p>
+     * libuv refreshes it at the start of every loop iteration, reading it is a
+     * plain memory read without a native call. Meant for the loop thread.
+     *
+     * @throws IllegalStateException if the loop was destroyed.
+     */
+    public long now() {
+        final ByteBuffer clock = this.clock;
+        if (clock == null) {
+            throw new IllegalStateException("loop is destroyed");
+        }
+        return clock.getLong(0);
+    }
+
+    /**
+     * Refresh the cached time of the loop, see {@code uv_update_time}.
+     */
+    public void updateTime() {
+        _update_time(pointer);
+    }
+
+    /**
+     * The current high resolution time in nanoseconds, see {@code uv_hrtime}.
+     * It is not cached, every call reads the clock.
+     */
+    public static long hrtime() {
+        return _hrtime();
     }
 
     public String[] list() {
         return _list(pointer);
     }
 
+    /**
+     * Counters of the native buffer pool shared by the stream reads and udp
+     * receives of this loop.
+     */
+    public BufferPoolStats getBufferPoolStats() {
+        final long[] stats = _buffer_pool_stats(pointer);
+        return new BufferPoolStats(stats[0], stats[1], stats[2]);
+    }
+
+    /**
+     * Copy the metrics last published by the loop into the given holder.
+     * <p>
+     * The loop publishes them every
+     * {@link LibUVConfiguration#loopMetricsInterval()} milliseconds, this
+     * method may be called from any thread and does not allocate.
+     *
+     * @return the given holder.
+     * @throws IllegalStateException if the metrics are not enabled.
+     */
+    public LoopMetrics getMetrics(final LoopMetrics into) {
+        if (metricsCounts == null) {
+            throw new IllegalStateException("loop metrics are disabled");
+        }
+        synchronized (metricsLock) {
+            into.set(iterations, idleTime, busyTime, maxIterationTime,
+                     pendingWriteBytes, callbackExceptions, handleCounts);
+        }
+        return into;
+    }
+
     public long pointer() {
         return pointer;
     }
 
+    RequestTable requests() {
+        return requests;
+    }
+
+    /**
+     * @return the peer address cache, {@code null} if it is disabled.
+     */
+    AddressCache addressCache() {
+        return addressCache;
+    }
+
+    long dispatchBatch() {
+        return dispatchBatch;
+    }
+
+    int registerBatchedStream(final StreamHandle stream) {
+        final Integer free = freeBatchIds.poll();
+        final int id;
+        if (free != null) {
+            id = free;
+        } else {
+            if (batchedStreamCount == batchedStreams.length) {
+                batchedStreams = Arrays.copyOf(batchedStreams, batchedStreamCount * 2);
+            }
+            id = batchedStreamCount++;
+        }
+        batchedStreams[id] = stream;
+        return id;
+    }
+
+    void unregisterBatchedStream(final int id) {
+        batchedStreams[id] = null;
+        freeBatchIds.push(id);
+    }
+
+    private void callPublishMetrics(final long iterations,
+                                    final long idleTime,
+                                    final long busyTime,
+                                    final long maxIterationTime,
+                                    final long pendingWriteBytes) {
+        final ByteBuffer counts = metricsCounts;
+        synchronized (metricsLock) {
+            this.iterations = iterations;
+            this.idleTime = idleTime;
+            this.busyTime = busyTime;
+            this.maxIterationTime = maxIterationTime;
+            this.pendingWriteBytes = pendingWriteBytes;
+            this.callbackExceptions = metricsHandler != null ? metricsHandler.exceptions() : 0;
+            for (int i = 0; i < handleCounts.length; i++) {
+                handleCounts[i] = counts.getInt(i * 4);
+            }
+        }
+    }
+
+    private void callDispatchEvents(final int count) {
+        final ByteBuffer events = dispatchEvents;
+        for (int i = 0; i < count; i++) {
+            final int event = i * EVENT_SIZE;
+            final StreamHandle stream = batchedStreams[events.getInt(event)];
+            if (stream == null) {
+                continue;
+            }
+            switch (events.getInt(event + 4)) {
+            case EVENT_READ:
+                // reads are stopped once the application closed the stream
+                if (!stream.closed) {
+                    final int offset = events.getInt(event + 8);
+                    final ByteBuffer data = dispatchArena.duplicate();
+                    data.limit(offset + events.getInt(event + 12));
+                    data.position(offset);
+                    stream.callRead(data.slice());
+                }
+                break;
+            case EVENT_WRITE:
+                stream.callWrite(0, null, (int) events.getLong(event + 16), -1);
+                break;
+            default:
+                assert false : "unsupported event type";
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     // ~ Native
     // ------------------------------------------------------------------------
@@ -185,7 +457,9 @@ public class LoopHandle implements Closeable {
     // ~ Native
     // ------------------------------------------------------------------------
 
-    private static native long _new();
+    private static native long _new(final int  slabSize,
+                                    final long maxPooledBytes,
+                                    final long handleCap);
 
     private static native void _static_initialize();
 
@@ -196,7 +470,31 @@ public class LoopHandle implements Closeable {
 
     private native void _destroy(final long ptr);
 
-    private native void _close_all(final long ptr);
+    private native void _close_all(final long ptr,
+                                   final long metrics,
+                                   final long batch);
 
     private native String[] _list(final long ptr);
+
+    private native long[] _buffer_pool_stats(final long ptr);
+
+    private native ByteBuffer _clock(final long ptr);
+
+    private native void _update_time(final long ptr);
+
+    private static native long _hrtime();
+
+    private native long _new_batch(final long       ptr,
+                                   final ByteBuffer events,
+                                   final int        capacity,
+                                   final ByteBuffer arena,
+                                   final int        chunkSize);
+
+    private native void _close_batch(final long batch);
+
+    private native long _new_metrics(final long       ptr,
+                                     final ByteBuffer counts,
+                                     final long       interval);
+
+    private native void _close_metrics(final long metrics);
 }
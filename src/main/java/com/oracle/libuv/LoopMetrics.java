@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.Arrays;
+
+/**
+ * Metrics last published by a {@link LoopHandle}.
+ * <p>
+ * The holder is meant to be reused, {@link LoopHandle#getMetrics(LoopMetrics)}
+ * overwrites it in place without allocating, so that a monitoring thread can
+ * poll a loop at a fixed rate.
+ */
+public class LoopMetrics {
+
+    private long iterations;
+
+    private long idleTime;
+
+    private long busyTime;
+
+    private long maxIterationTime;
+
+    private long pendingWriteBytes;
+
+    private long callbackExceptions;
+
+    private final int[] handleCounts = new int[HandleType.MAX];
+
+    void set(final long iterations,
+             final long idleTime,
+             final long busyTime,
+             final long maxIterationTime,
+             final long pendingWriteBytes,
+             final long callbackExceptions,
+             final int[] handleCounts) {
+        this.iterations = iterations;
+        this.idleTime = idleTime;
+        this.busyTime = busyTime;
+        this.maxIterationTime = maxIterationTime;
+        this.pendingWriteBytes = pendingWriteBytes;
+        this.callbackExceptions = callbackExceptions;
+        System.arraycopy(handleCounts, 0, this.handleCounts, 0, this.handleCounts.length);
+    }
+
+    /**
+     * @return number of loop iterations since the metrics were enabled.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return nanoseconds the loop spent blocked polling for events, see
+     *         {@code uv_metrics_idle_time}.
+     */
+    public long getIdleTime() {
+        return idleTime;
+    }
+
+    /**
+     * @return nanoseconds the loop spent outside the poll, running callbacks,
+     *         since the metrics were enabled.
+     */
+    public long getBusyTime() {
+        return busyTime;
+    }
+
+    /**
+     * @return nanoseconds spent outside the poll by the slowest iteration of
+     *         the last publishing interval.
+     */
+    public long getMaxIterationTime() {
+        return maxIterationTime;
+    }
+
+    /**
+     * @return bytes queued by stream writes and udp sends that are not yet
+     *         handed to the kernel.
+     */
+    public long getPendingWriteBytes() {
+        return pendingWriteBytes;
+    }
+
+    /**
+     * @return number of exceptions thrown by callbacks and passed to the
+     *         exception handler of the loop, only counted by the default
+     *         {@link LoopCallbackHandler}.
+     */
+    public long getCallbackExceptions() {
+        return callbackExceptions;
+    }
+
+    /**
+     * @return number of open handles of the given type, including the ones
+     *         used internally by the loop.
+     */
+    public int getHandleCount(final HandleType type) {
+        return handleCounts[type.value];
+    }
+
+    @Override
+    public String toString() {
+        return "LoopMetrics [iterations=" + iterations + ", idleTime=" + idleTime + ", busyTime=" + busyTime
+                + ", maxIterationTime=" + maxIterationTime + ", pendingWriteBytes=" + pendingWriteBytes
+                + ", callbackExceptions=" + callbackExceptions + ", handleCounts=" + Arrays.toString(handleCounts)
+                + "]";
+    }
+}
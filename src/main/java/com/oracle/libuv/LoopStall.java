@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.Arrays;
+
+/**
+ * A callback found running on the loop thread for longer than the threshold
+ * of a {@link LoopStallDetector}.
+ */
+public class LoopStall {
+
+    private final long duration;
+
+    private final String callbackType;
+
+    private final String callbackClass;
+
+    private final String threadName;
+
+    private final StackTraceElement[] stackTrace;
+
+    LoopStall(final long duration,
+              final String callbackType,
+              final String callbackClass,
+              final String threadName,
+              final StackTraceElement[] stackTrace) {
+        this.duration = duration;
+        this.callbackType = callbackType;
+        this.callbackClass = callbackClass;
+        this.threadName = threadName;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * @return milliseconds the callback had been running when the stall was
+     *         detected, it may still be running.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return simple name of the callback interface, {@code TimerCallback} for
+     *         instance.
+     */
+    public String getCallbackType() {
+        return callbackType;
+    }
+
+    /**
+     * @return name of the class implementing the callback.
+     */
+    public String getCallbackClass() {
+        return callbackClass;
+    }
+
+    /**
+     * @return name of the loop thread.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return stack of the loop thread taken while the callback was still
+     *         running, empty if it returned before the stack was captured.
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopStall [duration=" + duration + ", callbackType=" + callbackType + ", callbackClass="
+                + callbackClass + ", threadName=" + threadName + ", stackTrace=" + Arrays.toString(stackTrace) + "]";
+    }
+}
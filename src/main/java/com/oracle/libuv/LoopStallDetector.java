@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog reporting callbacks that block the loop thread.
+ * <p>
+ * Once created, the default {@link LoopCallbackHandler} of the loop records
+ * the callback it is running, a daemon thread samples it a few times per
+ * threshold and calls the {@link StallCallback} with the stack of the loop
+ * thread when a single callback runs for longer than the threshold. Each
+ * callback invocation is reported at most once. Time spent polling for events
+ * never counts as a stall.
+ * <p>
+ * Loops whose callback handler factory does not hand out a
+ * {@link LoopCallbackHandler} cannot be watched.
+ */
+public final class LoopStallDetector implements Closeable {
+
+    private static final StackTraceElement[] NO_STACK = new StackTraceElement[0];
+
+    private final LoopCallbackHandler handler;
+
+    private final long threshold;
+
+    private final StallCallback callback;
+
+    private final Thread watchdog;
+
+    private volatile boolean closed;
+
+    // written by the loop thread, read by the watchdog. sequence is bumped on
+    // every enter and exit so that the watchdog can tell a consistent read
+    private volatile long sequence;
+
+    private volatile long started;
+
+    private volatile String type;
+
+    private volatile Object running;
+
+    private volatile Thread thread;
+
+    // nesting of callbacks, only touched from the loop thread
+    private int depth;
+
+    /**
+     * @param loop the loop to watch.
+     * @param thresholdMillis time a callback may run before it is reported.
+     * @param callback called on the watchdog thread for every stall.
+     */
+    public LoopStallDetector(final LoopHandle loop,
+                             final long thresholdMillis,
+                             final StallCallback callback) {
+        if (thresholdMillis <= 0) {
+            throw new IllegalArgumentException("thresholdMillis");
+        }
+        final CallbackHandler handler = loop.getCallbackHandler();
+        if (!(handler instanceof LoopCallbackHandler)) {
+            throw new IllegalArgumentException("stall detection needs the default LoopCallbackHandler");
+        }
+        this.handler = (LoopCallbackHandler) handler;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.callback = callback;
+        this.handler.setStallDetector(this);
+        watchdog = new Thread(this::watch, "libuv-stall-detector");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    public long getThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    /**
+     * Stop watching the loop, a stall being reported is not interrupted.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            handler.setStallDetector(null);
+            watchdog.interrupt();
+        }
+    }
+
+    void enter(final String type, final Object cb) {
+        if (depth++ == 0) {
+            this.type = type;
+            running = cb;
+            thread = Thread.currentThread();
+            started = System.nanoTime();
+            sequence++;
+        }
+    }
+
+    void exit() {
+        if (--depth == 0) {
+            started = 0;
+            sequence++;
+        }
+    }
+
+    private void watch() {
+        final long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), threshold / 4);
+        long reported = -1;
+        while (!closed) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(period);
+            } catch (final InterruptedException ex) {
+                continue;
+            }
+            final long seq = sequence;
+            final long start = started;
+            final String type = this.type;
+            final Object running = this.running;
+            final Thread thread = this.thread;
+            if (seq != sequence || start == 0 || seq == reported) {
+                continue;
+            }
+            final long duration = System.nanoTime() - start;
+            if (duration < threshold) {
+                continue;
+            }
+            reported = seq;
+            StackTraceElement[] stack = thread.getStackTrace();
+            if (seq != sequence) {
+                // the callback returned meanwhile, the stack belongs to someone else
+                stack = NO_STACK;
+            }
+            report(new LoopStall(TimeUnit.NANOSECONDS.toMillis(duration),
+                                 type,
+                                 running.getClass().getName(),
+                                 thread.getName(),
+                                 stack));
+        }
+    }
+
+    private void report(final LoopStall stall) {
+        try {
+            callback.onStall(stall);
+        } catch (final Exception ex) {
+            final Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, ex);
+        }
+    }
+}
@@ -26,6 +26,9 @@ package com.oracle.libuv;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Pipe handles provide an abstraction over streaming files on Unix (including
  * local domain sockets, pipes, and FIFOs) and named pipes on Windows.
@@ -58,7 +61,8 @@ public class PipeHandle extends StreamHandle {
      * connections.
      * <p>
      * Call this function after receiving a {@link StreamConnectionCallback} to accept
-     * the connection. Before calling this function the client handle must be
+     * the connection, or on an ipc pipe while {@link #pendingCount()} is positive
+     * to receive a handle. Before calling this function the client handle must be
      * initialized.
      * 
      * @return {@code 0} on success, or an error {@code code < 0} on failure.
@@ -69,8 +73,97 @@ public class PipeHandle extends StreamHandle {
     }
 
     public void connect(final String name) {
+        connect(name, null);
+    }
+
+    /**
+     * Like {@link #connect(String)}, the returned stage completes on the loop
+     * thread with the status of the connection attempt or exceptionally with
+     * its error.
+     */
+    public CompletionStage<Integer> connectAsync(final String name) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            connect(name, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void connect(final String                     name,
+                         final CompletableFuture<Integer> future) {
         requireNonNull(name);
-        _connect(pointer, name, loop.getContext());
+        final int slot = loop.requests().acquire(null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            _connect(pointer, name, slot);
+            queued = true;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+    }
+
+    /**
+     * Open an existing file descriptor as a pipe.
+     *
+     * @return {@code 0} on success, or an error {@code code < 0} on failure.
+     */
+    public int open(final int fd) {
+        return _open(pointer, fd);
+    }
+
+    /**
+     * Send a tcp or pipe handle over an ipc pipe, along with a single byte of
+     * data.
+     * <p>
+     * The {@link StreamWriteCallback} is called once the handle was sent, the
+     * local handle can be closed from then on. On the other end the byte is
+     * delivered to the {@link StreamReadCallback}, from which the handle is
+     * received with {@link #accept(StreamHandle)}.
+     *
+     * @return {@code 0} on success, or an error {@code code < 0} on failure.
+     */
+    public int writeHandle(final StreamHandle handle) {
+        requireNonNull(handle);
+        flushWrites();
+        final int slot = loop.requests().acquire(null, loop.getContext());
+        boolean queued = false;
+        try {
+            final int r = _write2(pointer, handle.pointer, slot);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+    }
+
+    /**
+     * @return the number of handles received over this ipc pipe that were not
+     *         accepted yet.
+     */
+    public int pendingCount() {
+        return _pending_count(pointer);
+    }
+
+    /**
+     * @return the type of the next handle {@link #accept(StreamHandle)} takes,
+     *         the client handle must be of that type.
+     */
+    public HandleType pendingType() {
+        return HandleType.valueOf(_pending_type(pointer));
+    }
+
+    /**
+     * A connected pair of unix domain sockets, to be opened as ipc pipes on
+     * two loops of the same process.
+     */
+    static int[] socketPair() {
+        return _socket_pair();
     }
 
     // ------------------------------------------------------------------------
@@ -85,5 +178,18 @@ public class PipeHandle extends StreamHandle {
 
     private native void _connect(final long   ptr,
                                  final String name,
-                                 final Object context);
+                                 final int    slot);
+
+    private native int _open(final long ptr,
+                             final int  fd);
+
+    private native int _write2(final long ptr,
+                               final long send,
+                               final int  slot);
+
+    private native int _pending_count(final long ptr);
+
+    private native int _pending_type(final long ptr);
+
+    private static native int[] _socket_pair();
 }
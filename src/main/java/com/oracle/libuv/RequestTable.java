@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps what a pending native request refers to reachable, the direct memory
+ * it writes from, the context its callback runs in and the future it
+ * completes. Native code only holds the slot index, so queuing a request
+ * creates no JNI global references.
+ * <p>
+ * Requests with neither a buffer, a context nor a future take no slot at all.
+ * Callers release the slot themselves when the native call that should queue
+ * the request does not return normally, whatever it throws. A table belongs
+ * to one loop and is only used from its thread.
+ */
+final class RequestTable {
+
+    static final int NO_SLOT = -1;
+
+    private Object[] buffers;
+
+    private Object[] contexts;
+
+    private CompletableFuture<Integer>[] futures;
+
+    // free slots form a list threaded through this array
+    private int[] nextFree;
+
+    private int freeHead;
+
+    private int used;
+
+    private int pending;
+
+    RequestTable() {
+        buffers = new Object[16];
+        contexts = new Object[16];
+        futures = newFutures(16);
+        nextFree = new int[16];
+        freeHead = NO_SLOT;
+    }
+
+    int acquire(final Object buffer,
+                final Object context) {
+        return acquire(buffer, context, null);
+    }
+
+    int acquire(final Object                     buffer,
+                final Object                     context,
+                final CompletableFuture<Integer> future) {
+        if (buffer == null && context == null && future == null) {
+            return NO_SLOT;
+        }
+        final int slot;
+        if (freeHead != NO_SLOT) {
+            slot = freeHead;
+            freeHead = nextFree[slot];
+        } else {
+            if (used == buffers.length) {
+                buffers = Arrays.copyOf(buffers, used * 2);
+                contexts = Arrays.copyOf(contexts, used * 2);
+                futures = Arrays.copyOf(futures, used * 2);
+                nextFree = Arrays.copyOf(nextFree, used * 2);
+            }
+            slot = used++;
+        }
+        buffers[slot] = buffer;
+        contexts[slot] = context;
+        futures[slot] = future;
+        pending++;
+        return slot;
+    }
+
+    /**
+     * @return the future of the request, {@code null} if it has none. Must be
+     *         called before {@link #release(int)}.
+     */
+    CompletableFuture<Integer> future(final int slot) {
+        return slot == NO_SLOT ? null : futures[slot];
+    }
+
+    /**
+     * @return the context of the request, {@code null} for {@link #NO_SLOT}.
+     */
+    Object release(final int slot) {
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        final Object context = contexts[slot];
+        buffers[slot] = null;
+        contexts[slot] = null;
+        futures[slot] = null;
+        nextFree[slot] = freeHead;
+        freeHead = slot;
+        pending--;
+        return context;
+    }
+
+    /**
+     * @return the number of requests holding a slot.
+     */
+    int pending() {
+        return pending;
+    }
+
+    /**
+     * Complete the future of a request with its status, on the loop thread,
+     * so that dependent stages run without a thread hop.
+     */
+    static void complete(final CompletableFuture<Integer> future,
+                         final int                        status,
+                         final Exception                  error) {
+        if (future == null) {
+            return;
+        }
+        if (status < 0) {
+            future.completeExceptionally(error != null ? error : new NativeException("request failed with status " + status));
+        } else {
+            future.complete(status);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Integer>[] newFutures(final int size) {
+        return (CompletableFuture<Integer>[]) new CompletableFuture<?>[size];
+    }
+}
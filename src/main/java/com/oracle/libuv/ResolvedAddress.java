@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An ip address and port parsed once into a native {@code sockaddr} and
+ * reused by every call it is passed to, instead of parsing a host string per
+ * call. Immutable and safe to share between loops.
+ */
+public final class ResolvedAddress {
+
+    // sizeof(struct sockaddr_storage)
+    private static final int SOCKADDR_SIZE = 128;
+
+    private final String ip;
+
+    private final int port;
+
+    private final boolean ipv6;
+
+    private final ByteBuffer sockaddr;
+
+    /**
+     * @throws NativeException if {@code ip} is not a valid address of the
+     *         given family.
+     */
+    public ResolvedAddress(final String  ip,
+                           final int     port,
+                           final boolean ipv6) {
+        requireNonNull(ip);
+        this.ip = ip;
+        this.port = port;
+        this.ipv6 = ipv6;
+        this.sockaddr = ByteBuffer.allocateDirect(SOCKADDR_SIZE);
+        _parse(ip, port, ipv6, sockaddr);
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    ByteBuffer sockaddr() {
+        return sockaddr;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ResolvedAddress)) {
+            return false;
+        }
+        final ResolvedAddress that = (ResolvedAddress) other;
+        return port == that.port && ipv6 == that.ipv6 && ip.equals(that.ip);
+    }
+
+    @Override
+    public int hashCode() {
+        return (ip.hashCode() * 31 + port) * 31 + (ipv6 ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedAddress [ip=" + ip + ", port=" + port + ", ipv6=" + ipv6 + "]";
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Native
+    // ------------------------------------------------------------------------
+
+    private static native void _parse(String     ip,
+                                      int        port,
+                                      boolean    ipv6,
+                                      ByteBuffer sockaddr);
+}
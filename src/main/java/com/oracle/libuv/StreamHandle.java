@@ -29,17 +29,46 @@ import static java.util.Objects.requireNonNull;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntFunction;
 
 class StreamHandle extends Handle {
 
+    // what libuv suggests for stream reads
+    private static final int SUGGESTED_READ_SIZE = 64 * 1024;
+
     protected boolean closed;
 
     protected boolean readStarted;
 
     protected StreamReadCallback onRead;
 
+    protected StreamLeasedReadCallback onLeasedRead;
+
+    protected int outstandingLeases;
+
+    protected IntFunction<ByteBuffer> readBufferProvider;
+
+    private ByteBuffer providedReadBuffer;
+
+    // taken by readStart(IntFunction) to check it, handed out by the next callAlloc
+    private ByteBuffer firstReadBuffer;
+
+    protected StreamNoBufferCallback onNoBuffer;
+
     protected StreamWriteCallback onWrite;
 
+    protected StreamWritabilityCallback onWritabilityChanged;
+
+    private long writeLowWatermark;
+
+    private long writeHighWatermark;
+
+    private boolean backpressured;
+
     protected StreamConnectCallback onConnect;
     
     protected StreamConnectionCallback onConnection;
@@ -48,6 +77,19 @@ class StreamHandle extends Handle {
 
     protected StreamShutdownCallback onShutdown;
 
+    private int coalesceThreshold;
+
+    private final List<ByteBuffer> coalesced = new ArrayList<>();
+
+    private int coalescedBytes;
+
+    private PrepareHandle coalesceFlusher;
+
+    private int batchId = -1;
+
+    // run after the close callback, lets the library track handles it hands out
+    private Runnable closeListener;
+
     static {
         _static_initialize();
     }
@@ -56,10 +98,52 @@ class StreamHandle extends Handle {
         onRead = callback;
     }
 
+    /**
+     * Attach a {@link StreamLeasedReadCallback}, which replaces the
+     * {@link StreamReadCallback} while it is set.
+     * <p>
+     * Reads are delivered without copying, in the native buffer libuv read
+     * into. Each {@link LeasedBuffer} must be released by the application.
+     *
+     * @param callback the callback, or {@code null} to go back to copied reads.
+     */
+    public void setLeasedReadCallback(final StreamLeasedReadCallback callback) {
+        onLeasedRead = callback;
+        _lease_reads(pointer, callback != null);
+    }
+
+    /**
+     * @return number of {@link LeasedBuffer} delivered by this handle and not
+     *         released yet.
+     */
+    public int getOutstandingLeases() {
+        return outstandingLeases;
+    }
+
+    /**
+     * Called when the read buffer provider returned no space to read into,
+     * after reading was stopped.
+     *
+     * @see #readStart(IntFunction)
+     */
+    public void setNoBufferCallback(final StreamNoBufferCallback callback) {
+        onNoBuffer = callback;
+    }
+
     public void setWriteCallback(final StreamWriteCallback callback) {
         onWrite = callback;
     }
 
+    /**
+     * Called when the bytes waiting to be written rise above the high
+     * watermark, and again once they drain to the low watermark.
+     *
+     * @see #setWriteWatermarks(long, long)
+     */
+    public void setWritabilityCallback(final StreamWritabilityCallback callback) {
+        onWritabilityChanged = callback;
+    }
+
     public void setConnectCallback(final StreamConnectCallback callback) {
         onConnect = callback;
     }
@@ -83,6 +167,40 @@ class StreamHandle extends Handle {
         readStarted = true;
     }
 
+    /**
+     * Start reading into buffers supplied by the application.
+     * <p>
+     * The provider is called with the size libuv suggests before every read and
+     * must return a writable direct buffer, libuv reads into its remaining
+     * space. The same buffer is then passed to the {@link StreamReadCallback}
+     * with its limit set after the bytes read, it is never copied. When the
+     * provider returns {@code null} or a full buffer, reading stops and the
+     * {@link StreamNoBufferCallback} is called, {@link #readStart()} resumes
+     * it.
+     * <p>
+     * The provider is asked for the first buffer right away, a buffer that is
+     * not direct or is read-only is rejected before reading starts. It stays
+     * in effect for later calls to {@link #readStart()}.
+     *
+     * @param provider the buffer provider, or {@code null} to read into pooled
+     *                 native buffers again.
+     * @throws IllegalArgumentException if the first buffer is not a writable
+     *                                  direct buffer.
+     */
+    public void readStart(final IntFunction<ByteBuffer> provider) {
+        ByteBuffer first = null;
+        if (provider != null) {
+            first = provider.apply(SUGGESTED_READ_SIZE);
+            if (first != null) {
+                checkReadBuffer(first);
+            }
+        }
+        readBufferProvider = provider;
+        firstReadBuffer = first;
+        _provide_reads(pointer, provider != null);
+        readStart();
+    }
+
     public void readStop() {
         _read_stop(pointer);
         readStarted = false;
@@ -97,15 +215,107 @@ class StreamHandle extends Handle {
                      final Charset encoding) {
         requireNonNull(str);
         final byte[] data = str.getBytes(encoding);
+        if (coalesceThreshold > 0) {
+            // nobody else holds the array, no need to copy it
+            return coalesce(ByteBuffer.wrap(data));
+        }
         return write(ByteBuffer.wrap(data), 0, data.length);
     }
 
     public int write(final ByteBuffer buffer, final int offset, final int length) {
         requireNonNull(buffer);
+        if (coalesceThreshold > 0) {
+            final ByteBuffer pending;
+            if (buffer.isDirect()) {
+                pending = buffer.duplicate();
+                pending.clear();
+                pending.limit(offset + length);
+                pending.position(offset);
+            } else {
+                final byte[] copy = new byte[length];
+                if (buffer.hasArray()) {
+                    System.arraycopy(buffer.array(), offset, copy, 0, length);
+                } else {
+                    final ByteBuffer source = buffer.duplicate();
+                    source.clear();
+                    source.position(offset);
+                    source.get(copy);
+                }
+                pending = ByteBuffer.wrap(copy);
+            }
+            return coalesce(pending);
+        }
+        final int r;
         if (buffer.hasArray()) {
-            return _write(pointer, buffer, buffer.array(), offset, length, loop.getContext());
+            r = queueWrite(buffer, buffer.array(), offset, length, null);
+        } else {
+            r = queueWrite(buffer, null, offset, length, null);
+        }
+        checkHighWatermark();
+        return r;
+    }
+
+    /**
+     * Like {@link #write(String)}, with the outcome of this write reported to
+     * the returned stage.
+     *
+     * @see #writeAsync(ByteBuffer, int, int)
+     */
+    public CompletionStage<Integer> writeAsync(final String str) {
+        requireNonNull(str);
+        final byte[] data = str.getBytes(UTF_8);
+        return writeAsync(ByteBuffer.wrap(data), 0, data.length);
+    }
+
+    /**
+     * @see #writeAsync(ByteBuffer, int, int)
+     */
+    public CompletionStage<Integer> writeAsync(final ByteBuffer buffer) {
+        requireNonNull(buffer);
+        return writeAsync(buffer, 0, buffer.capacity());
+    }
+
+    /**
+     * Like {@link #write(ByteBuffer, int, int)}, with the outcome of this
+     * write reported to the returned stage.
+     * <p>
+     * The stage completes on the loop thread, with the status of the write or
+     * exceptionally with its error, so dependent stages run there without a
+     * thread hop. The {@link StreamWriteCallback} is called as well. Coalesced
+     * writes are flushed first, this write goes out as a request of its own.
+     */
+    public CompletionStage<Integer> writeAsync(final ByteBuffer buffer,
+                                               final int        offset,
+                                               final int        length) {
+        requireNonNull(buffer);
+        flushWrites();
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            queueWrite(buffer, buffer.hasArray() ? buffer.array() : null, offset, length, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        checkHighWatermark();
+        return future;
+    }
+
+    private int queueWrite(final ByteBuffer                 buffer,
+                           final byte[]                     data,
+                           final int                        offset,
+                           final int                        length,
+                           final CompletableFuture<Integer> future) {
+        // heap data is copied natively, only direct memory has to stay reachable
+        final int slot = loop.requests().acquire(data == null ? buffer : null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _write(pointer, buffer, data, offset, length, slot);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
         }
-        return _write(pointer, buffer, null, offset, length, loop.getContext());
     }
 
     public int write(final ByteBuffer buffer) {
@@ -113,17 +323,323 @@ class StreamHandle extends Handle {
         return write(buffer, 0, buffer.capacity());
     }
 
+    /**
+     * Write as much of the remaining bytes of the buffer as the stream accepts
+     * right now, without queuing a request.
+     * <p>
+     * No {@link StreamWriteCallback} is called for this write. The position of
+     * the buffer is advanced by the number of bytes written.
+     *
+     * @return the number of bytes written, {@code 0} if the stream could not
+     *         take any data without blocking or if there are queued writes.
+     */
+    public int tryWrite(final ByteBuffer buffer) {
+        requireNonNull(buffer);
+        final int length = buffer.remaining();
+        if (length == 0) {
+            return 0;
+        }
+        // keeps the order with coalesced writes, which then make this a no-op
+        flushWrites();
+        final int written;
+        if (buffer.isDirect()) {
+            written = _try_write(pointer, buffer, null, buffer.position(), length);
+        } else if (buffer.hasArray()) {
+            written = _try_write(pointer, null, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            // read-only heap buffer
+            final byte[] copy = new byte[length];
+            buffer.duplicate().get(copy);
+            written = _try_write(pointer, null, copy, 0, length);
+        }
+        buffer.position(buffer.position() + written);
+        return written;
+    }
+
+    /**
+     * Write the remaining bytes of the buffer synchronously as far as possible,
+     * and queue a {@code uv_write} request for what is left.
+     * <p>
+     * The {@link StreamWriteCallback} is only called when a request had to be
+     * queued. A direct buffer must then not be modified until the callback is
+     * called, heap content is copied. The position of the buffer is advanced to
+     * its limit.
+     *
+     * @return the number of bytes written synchronously, if this is less than
+     *         the remaining bytes of the buffer the rest was queued.
+     */
+    public int tryWriteOrQueue(final ByteBuffer buffer) {
+        requireNonNull(buffer);
+        final int position = buffer.position();
+        final int length = buffer.remaining();
+        final int written = tryWrite(buffer);
+        if (written < length) {
+            if (buffer.isDirect()) {
+                queueWrite(buffer, null, position + written, length - written, null);
+            } else if (buffer.hasArray()) {
+                queueWrite(buffer, buffer.array(), buffer.arrayOffset() + position + written, length - written, null);
+            } else {
+                final byte[] rest = new byte[length - written];
+                buffer.get(rest);
+                queueWrite(null, rest, 0, rest.length, null);
+            }
+            buffer.position(position + length);
+            checkHighWatermark();
+        }
+        return written;
+    }
+
+    /**
+     * Write the remaining bytes of all buffers, in order, with a single
+     * {@code uv_write} request.
+     * <p>
+     * Heap and direct buffers can be mixed. Heap content is copied when the
+     * request is queued, direct buffers are written in place and must not be
+     * modified before the {@link StreamWriteCallback} is called. The position
+     * of the buffers is not changed.
+     *
+     * @return {@code 0} on success, or an error {@code code < 0} on failure.
+     */
+    public int write(final ByteBuffer... buffers) {
+        requireNonNull(buffers);
+        if (buffers.length == 0) {
+            throw new IllegalArgumentException("no buffers to write");
+        }
+        if (coalesceThreshold > 0) {
+            int r = 0;
+            for (final ByteBuffer buffer : buffers) {
+                requireNonNull(buffer);
+                final ByteBuffer pending;
+                if (buffer.isDirect()) {
+                    pending = buffer.duplicate();
+                } else {
+                    final byte[] copy = new byte[buffer.remaining()];
+                    buffer.duplicate().get(copy);
+                    pending = ByteBuffer.wrap(copy);
+                }
+                r = coalesce(pending);
+            }
+            return r;
+        }
+        return writev(buffers);
+    }
+
+    /**
+     * @see #write(ByteBuffer...)
+     */
+    public int write(final List<ByteBuffer> buffers) {
+        requireNonNull(buffers);
+        return write(buffers.toArray(new ByteBuffer[buffers.size()]));
+    }
+
+    /**
+     * Track the bytes waiting to be written, queued in libuv plus coalesced,
+     * against a pair of watermarks. Once a write takes them above
+     * {@code high} the stream is backpressured until write completions bring
+     * them back to {@code low}, each transition is reported to the
+     * {@link StreamWritabilityCallback}.
+     *
+     * @param low  bytes at or below which a backpressured stream drains.
+     * @param high bytes above which the stream becomes backpressured,
+     *             {@code 0} disables tracking.
+     */
+    public void setWriteWatermarks(final long low,
+                                   final long high) {
+        if (low < 0 || high < 0 || low > high) {
+            throw new IllegalArgumentException("invalid watermarks low=" + low + ", high=" + high);
+        }
+        writeLowWatermark = low;
+        writeHighWatermark = high;
+        if (high == 0) {
+            backpressured = false;
+        } else {
+            checkHighWatermark();
+        }
+    }
+
+    /**
+     * @return {@code true} from the write that crossed the high watermark
+     *         until the queue drains to the low watermark.
+     */
+    public boolean isBackpressured() {
+        return backpressured;
+    }
+
+    private void checkHighWatermark() {
+        if (writeHighWatermark > 0 && !backpressured &&
+                _write_queue_size(pointer) + coalescedBytes > writeHighWatermark) {
+            backpressured = true;
+            callWritabilityChanged(false);
+        }
+    }
+
+    private void callWritabilityChanged(final boolean writable) {
+        if (onWritabilityChanged != null) {
+            loop.getCallbackHandler()
+                .handleStreamWritabilityCallback(onWritabilityChanged, writable);
+        }
+    }
+
+    /**
+     * Collect the writes made during one loop iteration and hand them to libuv
+     * as a single request, right before the loop polls for I/O, or as soon as
+     * {@code thresholdBytes} are pending.
+     * <p>
+     * While coalescing, {@code write} returns {@code 0} once the data is
+     * queued, heap content is copied and the {@link StreamWriteCallback} is
+     * called once per flushed batch rather than once per write.
+     *
+     * @param thresholdBytes pending bytes that trigger an immediate flush,
+     *        {@code 0} flushes what is pending and disables coalescing.
+     */
+    public void setWriteCoalescing(final int thresholdBytes) {
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("thresholdBytes");
+        }
+        if (thresholdBytes == 0) {
+            flushWrites();
+            if (coalesceFlusher != null) {
+                coalesceFlusher.close();
+                coalesceFlusher = null;
+            }
+        } else if (coalesceFlusher == null) {
+            coalesceFlusher = new PrepareHandle(loop);
+            coalesceFlusher.setPrepareCallback(status -> flushWrites());
+        }
+        coalesceThreshold = thresholdBytes;
+    }
+
+    /**
+     * Hand the coalesced writes to libuv now instead of waiting for the end of
+     * the loop iteration.
+     *
+     * @return {@code 0} on success or if nothing was pending, or an error
+     *         {@code code < 0} on failure.
+     */
+    public int flushWrites() {
+        if (coalesced.isEmpty()) {
+            return 0;
+        }
+        final ByteBuffer[] buffers = coalesced.toArray(new ByteBuffer[coalesced.size()]);
+        coalesced.clear();
+        coalescedBytes = 0;
+        coalesceFlusher.stop();
+        return writev(buffers);
+    }
+
+    private int coalesce(final ByteBuffer pending) {
+        coalesced.add(pending);
+        coalescedBytes += pending.remaining();
+        if (coalescedBytes >= coalesceThreshold) {
+            return flushWrites();
+        }
+        if (coalesced.size() == 1) {
+            coalesceFlusher.start();
+        }
+        checkHighWatermark();
+        return 0;
+    }
+
+    private int writev(final ByteBuffer[] buffers) {
+        final int count = buffers.length;
+        final ByteBuffer[] targets = new ByteBuffer[count];
+        final byte[][] arrays = new byte[count][];
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer buffer = requireNonNull(buffers[i]);
+            lengths[i] = buffer.remaining();
+            if (buffer.isDirect()) {
+                targets[i] = buffer;
+                offsets[i] = buffer.position();
+            } else if (buffer.hasArray()) {
+                arrays[i] = buffer.array();
+                offsets[i] = buffer.arrayOffset() + buffer.position();
+            } else {
+                // read-only heap buffer
+                final byte[] copy = new byte[lengths[i]];
+                buffer.duplicate().get(copy);
+                arrays[i] = copy;
+            }
+        }
+        boolean direct = false;
+        for (final ByteBuffer target : targets) {
+            direct |= target != null;
+        }
+        final int slot = loop.requests().acquire(direct ? targets : null, loop.getContext());
+        final int r;
+        boolean queued = false;
+        try {
+            r = _writev(pointer, targets, arrays, offsets, lengths, count, slot);
+            queued = true;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+        checkHighWatermark();
+        return r;
+    }
+
     public int closeWrite() {
-        return _close_write(pointer, loop.getContext());
+        return closeWrite(null);
+    }
+
+    /**
+     * Like {@link #closeWrite()}, the returned stage completes on the loop
+     * thread once the shutdown is done.
+     */
+    public CompletionStage<Integer> closeWriteAsync() {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            closeWrite(future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private int closeWrite(final CompletableFuture<Integer> future) {
+        flushWrites();
+        final int slot = loop.requests().acquire(null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _close_write(pointer, slot);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
     }
 
     public void close() {
         if (!closed) {
+            // pending writes would be cancelled by the close anyway
+            coalesced.clear();
+            coalescedBytes = 0;
+            if (coalesceFlusher != null) {
+                coalesceFlusher.close();
+                coalesceFlusher = null;
+            }
+            coalesceThreshold = 0;
             _close(pointer);
         }
         closed = true;
     }
 
+    /**
+     * Run a task after the close callback, after the listeners added before.
+     */
+    void addCloseListener(final Runnable listener) {
+        final Runnable previous = closeListener;
+        closeListener = previous == null ? listener : () -> {
+            previous.run();
+            listener.run();
+        };
+    }
+
     public int listen(final int backlog) {
         return _listen(pointer, backlog);
     }
@@ -150,6 +666,10 @@ class StreamHandle extends Handle {
         this.closed = false;
         this.readStarted = false;
         _initialize(pointer);
+        if (loop.dispatchBatch() != 0) {
+            batchId = loop.registerBatchedStream(this);
+            _batch_dispatch(pointer, loop.dispatchBatch(), batchId);
+        }
     }
 
     protected void callRead(final ByteBuffer data) {
@@ -159,22 +679,115 @@ class StreamHandle extends Handle {
         }
     }
 
-    protected void callWrite(final int status,
-                             final     Exception error,
-                             final     Object context) {
+    private static void checkReadBuffer(final ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.isReadOnly()) {
+            throw new IllegalArgumentException("read buffers must be writable direct buffers");
+        }
+    }
+
+    protected ByteBuffer callAlloc(final int suggestedSize) {
+        providedReadBuffer = null;
+        if (readBufferProvider == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer;
+            if (firstReadBuffer != null) {
+                buffer = firstReadBuffer;
+                firstReadBuffer = null;
+            } else {
+                buffer = readBufferProvider.apply(suggestedSize);
+            }
+            if (buffer == null) {
+                return null;
+            }
+            // a bad buffer is reported, the read then stops as if none was given
+            checkReadBuffer(buffer);
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            providedReadBuffer = buffer;
+            // native code reads into [0, capacity) of what is returned
+            return buffer.position() == 0 && buffer.limit() == buffer.capacity() ? buffer : buffer.slice();
+        } catch (final Exception ex) {
+            loop.getExceptionHandler().handle(ex);
+            return null;
+        }
+    }
+
+    protected void callReadProvided(final int nread) {
+        final ByteBuffer buffer = providedReadBuffer;
+        providedReadBuffer = null;
+        if (nread > 0) {
+            assert buffer != null;
+            buffer.limit(buffer.position() + nread);
+        }
+        if (onRead != null) {
+            loop.getCallbackHandler()
+                .handleStreamProvidedReadCallback(onRead, nread > 0 ? buffer : null);
+        }
+    }
+
+    protected void callReadNoBuffer() {
+        // native code stopped reading, readStart() has to start it again
+        readStarted = false;
+        if (onNoBuffer != null) {
+            loop.getCallbackHandler()
+                .handleStreamNoBufferCallback(onNoBuffer);
+        }
+    }
+
+    protected void callReadLease(final ByteBuffer data,
+                                 final long       address) {
+        final LeasedBuffer lease;
+        if (data != null) {
+            outstandingLeases++;
+            lease = new LeasedBuffer(this, data, address);
+        } else {
+            lease = null;
+        }
+        if (onLeasedRead != null) {
+            loop.getCallbackHandler()
+                .handleStreamLeasedReadCallback(onLeasedRead, lease);
+        } else if (lease != null) {
+            lease.release();
+        }
+    }
+
+    void releaseLease(final long address) {
+        outstandingLeases--;
+        _release_read_buffer(loop.pointer(), address);
+    }
+
+    protected void callWrite(final int       status,
+                             final Exception error,
+                             final int       slot,
+                             final long      queueSize) {
+        final CompletableFuture<Integer> future = loop.requests().future(slot);
+        final Object context = loop.requests().release(slot);
         if (onWrite != null) {
             loop.getCallbackHandler(context)
                 .handleStreamWriteCallback(onWrite, status, error);
         }
+        RequestTable.complete(future, status, error);
+        // batched completions do not carry the queue size
+        if (backpressured &&
+                (queueSize < 0 ? _write_queue_size(pointer) : queueSize) + coalescedBytes <= writeLowWatermark) {
+            backpressured = false;
+            callWritabilityChanged(true);
+        }
     }
 
     protected void callConnect(final int       status,
                                final Exception error,
-                               final Object    context) {
+                               final int       slot) {
+        final CompletableFuture<Integer> future = loop.requests().future(slot);
+        final Object context = loop.requests().release(slot);
         if (onConnect != null) {
             loop.getCallbackHandler(context)
                 .handleStreamConnectCallback(onConnect, status, error);
         }
+        RequestTable.complete(future, status, error);
     }
 
     protected void callConnection(final int       status,
@@ -186,19 +799,33 @@ class StreamHandle extends Handle {
     }
 
     protected void callClose() {
+        if (batchId >= 0) {
+            loop.unregisterBatchedStream(batchId);
+            batchId = -1;
+        }
         if (onClose != null) {
             loop.getCallbackHandler()
                 .handleStreamCloseCallback(onClose);
         }
+        if (closeListener != null) {
+            closeListener.run();
+        }
+        if (outstandingLeases > 0) {
+            loop.getExceptionHandler()
+                .handle(new IllegalStateException(this + " closed with " + outstandingLeases + " unreleased read lease(s)"));
+        }
     }
 
     protected void callShutdown(final int       status,
                                 final Exception error,
-                                final Object    context) {
+                                final int       slot) {
+        final CompletableFuture<Integer> future = loop.requests().future(slot);
+        final Object context = loop.requests().release(slot);
         if (onShutdown != null) {
             loop.getCallbackHandler(context)
                 .handleStreamShutdownCallback(onShutdown, status, error);
         }
+        RequestTable.complete(future, status, error);
     }
 
     // ------------------------------------------------------------------------
@@ -213,6 +840,19 @@ class StreamHandle extends Handle {
 
     private native void _read_stop(final long ptr);
 
+    private native void _lease_reads(final long    ptr,
+                                     final boolean lease);
+
+    private native void _batch_dispatch(final long ptr,
+                                        final long batch,
+                                        final int  id);
+
+    private native void _provide_reads(final long    ptr,
+                                       final boolean provided);
+
+    private static native void _release_read_buffer(final long loop,
+                                                    final long address);
+
     private native boolean _readable(final long ptr);
 
     private native boolean _writable(final long ptr);
@@ -222,19 +862,28 @@ class StreamHandle extends Handle {
                               final byte[]     data,
                               final int        offset,
                               final int        length,
-                              final Object     context);
-
-    private native int _writev(final long     ptr,
-                               final byte[][] buffers,
-                               final int      bufcount,
-                               final Object   context);
+                              final int        slot);
+
+    private native int _try_write(final long       ptr,
+                                  final ByteBuffer buffer,
+                                  final byte[]     data,
+                                  final int        offset,
+                                  final int        length);
+
+    private native int _writev(final long         ptr,
+                               final ByteBuffer[] buffers,
+                               final byte[][]     arrays,
+                               final int[]        offsets,
+                               final int[]        lengths,
+                               final int          bufcount,
+                               final int          slot);
 
     private native long _write_queue_size(final long ptr);
 
     private native void _close(final long ptr);
 
-    private native int _close_write(final long   ptr,
-                                    final Object context);
+    private native int _close_write(final long ptr,
+                                    final int  slot);
 
     private native int _listen(final long ptr,
                                final int backlog);
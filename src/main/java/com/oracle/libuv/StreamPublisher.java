@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Publishes the reads of a stream to a single {@link StreamSubscriber}, the
+ * stream only reads while the subscriber has demand.
+ * <p>
+ * Outstanding demand starts the stream reading and exhausted demand stops it,
+ * so unread data stays in the kernel and the peer is pushed back by tcp flow
+ * control instead of being buffered here. Reads that were already under way
+ * when the demand ran out are held until the next request.
+ * <p>
+ * To be used on the loop thread of the stream.
+ */
+public final class StreamPublisher {
+
+    private final StreamHandle stream;
+
+    private StreamSubscriber subscriber;
+
+    private long demand;
+
+    private boolean reading;
+
+    private boolean delivering;
+
+    private boolean done;
+
+    // reads that arrived without demand, copied out of memory the loop reuses
+    private final ArrayDeque<ByteBuffer> held = new ArrayDeque<>();
+
+    private boolean eof;
+
+    /**
+     * Take over the reads of a stream.
+     */
+    public StreamPublisher(final StreamHandle stream) {
+        requireNonNull(stream);
+        this.stream = stream;
+        stream.setReadCallback(this::onRead);
+        stream.addCloseListener(this::onClosed);
+    }
+
+    /**
+     * @throws IllegalStateException if the publisher already has a subscriber.
+     */
+    public void subscribe(final StreamSubscriber subscriber) {
+        requireNonNull(subscriber);
+        if (this.subscriber != null) {
+            throw new IllegalStateException("already subscribed");
+        }
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new StreamSubscription() {
+            @Override
+            public void request(final long n) {
+                StreamPublisher.this.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                StreamPublisher.this.cancel();
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private void request(final long n) {
+        if (done) {
+            return;
+        }
+        if (n <= 0) {
+            cancel();
+            subscriber.onError(new IllegalArgumentException("non-positive request " + n));
+            return;
+        }
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        drain();
+    }
+
+    private void cancel() {
+        if (!done) {
+            done = true;
+            held.clear();
+            stopReading();
+        }
+    }
+
+    private void onRead(final ByteBuffer data) {
+        if (done) {
+            return;
+        }
+        if (data == null) {
+            eof = true;
+            stopReading();
+        } else if (demand > 0 && held.isEmpty() && !delivering) {
+            demand--;
+            subscriber.onNext(data);
+            if (demand == 0) {
+                stopReading();
+            }
+            return;
+        } else {
+            final ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+            copy.put(data).flip();
+            held.add(copy);
+        }
+        drain();
+    }
+
+    private void onClosed() {
+        if (!done) {
+            eof = true;
+            drain();
+        }
+    }
+
+    private void drain() {
+        // request() may be called from onNext, the outer call delivers
+        if (delivering) {
+            return;
+        }
+        delivering = true;
+        try {
+            while (!done && demand > 0 && !held.isEmpty()) {
+                demand--;
+                subscriber.onNext(held.poll());
+            }
+            if (!done && eof && held.isEmpty()) {
+                done = true;
+                subscriber.onComplete();
+                return;
+            }
+            if (!done) {
+                if (demand > 0) {
+                    startReading();
+                } else {
+                    stopReading();
+                }
+            }
+        } finally {
+            delivering = false;
+        }
+    }
+
+    private void startReading() {
+        if (!reading && !eof && !stream.closed) {
+            reading = true;
+            stream.readStart();
+        }
+    }
+
+    private void stopReading() {
+        if (reading) {
+            reading = false;
+            if (!stream.closed) {
+                stream.readStop();
+            }
+        }
+    }
+}
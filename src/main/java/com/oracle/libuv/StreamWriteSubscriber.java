@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the buffers it subscribes to into a stream, requesting one more
+ * buffer only while the write queue of the stream is below a threshold.
+ * <p>
+ * Together with a {@link StreamPublisher} this relays one stream into another
+ * with demand flowing back from the slower side. The remaining bytes of each
+ * buffer are written, as much as the stream takes right away directly and the
+ * rest from a copy, so no buffer is used after {@link #onNext(ByteBuffer)}
+ * returned. On completion the write side of the stream is shut down, on error
+ * the stream is closed.
+ * <p>
+ * To be used on the loop thread of the stream.
+ */
+public final class StreamWriteSubscriber implements StreamSubscriber {
+
+    private final StreamHandle stream;
+
+    private final long threshold;
+
+    private StreamSubscription subscription;
+
+    // a buffer was asked for and did not arrive yet
+    private boolean requested;
+
+    private boolean done;
+
+    /**
+     * @param threshold bytes queued in the stream at or above which no more
+     *                  buffers are requested.
+     */
+    public StreamWriteSubscriber(final StreamHandle stream,
+                                 final long         threshold) {
+        requireNonNull(stream);
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold");
+        }
+        this.stream = stream;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void onSubscribe(final StreamSubscription subscription) {
+        requireNonNull(subscription);
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        requestIfBelowThreshold();
+    }
+
+    @Override
+    public void onNext(final ByteBuffer buffer) {
+        requireNonNull(buffer);
+        requested = false;
+        if (done) {
+            return;
+        }
+        if (stream.closed) {
+            done = true;
+            subscription.cancel();
+            return;
+        }
+        final ByteBuffer data;
+        if (buffer.isDirect()) {
+            // the buffer is only valid during this call, what the stream does
+            // not take right away is written from a heap copy
+            try {
+                stream.tryWrite(buffer);
+            } catch (final RuntimeException ex) {
+                fail();
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                requestIfBelowThreshold();
+                return;
+            }
+            data = ByteBuffer.allocate(buffer.remaining());
+            data.put(buffer).flip();
+        } else if (buffer.hasArray()) {
+            // heap content is copied when the write is queued
+            data = buffer;
+        } else {
+            // read-only heap buffers do not expose their array
+            data = ByteBuffer.allocate(buffer.remaining());
+            data.put(buffer.duplicate()).flip();
+        }
+        // the offset of a heap write indexes the backing array
+        stream.writeAsync(data, data.arrayOffset() + data.position(), data.remaining())
+              .whenComplete((status, error) -> {
+                  if (error != null) {
+                      fail();
+                  } else {
+                      requestIfBelowThreshold();
+                  }
+              });
+        requestIfBelowThreshold();
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+        if (!done) {
+            done = true;
+            stream.close();
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (!done) {
+            done = true;
+            if (!stream.closed) {
+                stream.closeWrite();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private void requestIfBelowThreshold() {
+        if (!done && !requested && !stream.closed && stream.writeQueueSize() < threshold) {
+            requested = true;
+            subscription.request(1);
+        }
+    }
+
+    private void fail() {
+        if (!done) {
+            done = true;
+            subscription.cancel();
+            stream.close();
+        }
+    }
+}
@@ -26,7 +26,10 @@ package com.oracle.libuv;
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public class TCPHandle extends StreamHandle {
 
@@ -62,13 +65,107 @@ public class TCPHandle extends StreamHandle {
                      port, ipv6, flags);
     }
 
+    /**
+     * Like {@link #bind(String, int, boolean)}, without parsing the address.
+     */
+    public int bind(final ResolvedAddress address) {
+        return bind(address, 0);
+    }
+
+    public int bind(final ResolvedAddress   address,
+                    final EnumSet<TcpFlags> flags) {
+        int flagValue = 0;
+        for (TcpFlags next : flags) {
+            flagValue |= next.value;
+        }
+        return bind(address, flagValue);
+    }
+
+    public int bind(final ResolvedAddress address,
+                    final int             flags) {
+        requireNonNull(address);
+        return _bind_address(pointer, address.sockaddr(), flags);
+    }
+
     public int connect(final String  address,
                        final int     port,
                        final boolean ipv6) {
+        return connect(address, port, ipv6, null);
+    }
+
+    /**
+     * Like {@link #connect(String, int, boolean)}, the returned stage
+     * completes on the loop thread with the status of the connection attempt
+     * or exceptionally with its error.
+     */
+    public CompletionStage<Integer> connectAsync(final String  address,
+                                                 final int     port,
+                                                 final boolean ipv6) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            connect(address, port, ipv6, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Like {@link #connect(String, int, boolean)}, without parsing the
+     * address.
+     */
+    public int connect(final ResolvedAddress address) {
+        return connect(address, null);
+    }
+
+    /**
+     * Like {@link #connectAsync(String, int, boolean)}, without parsing the
+     * address.
+     */
+    public CompletionStage<Integer> connectAsync(final ResolvedAddress address) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            connect(address, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private int connect(final ResolvedAddress            address,
+                        final CompletableFuture<Integer> future) {
         requireNonNull(address);
-        return _connect(pointer, address,
-                        port, loop.getContext(),
-                        ipv6);
+        final int slot = loop.requests().acquire(null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _connect_address(pointer, address.sockaddr(), slot);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+    }
+
+    private int connect(final String                     address,
+                        final int                        port,
+                        final boolean                    ipv6,
+                        final CompletableFuture<Integer> future) {
+        requireNonNull(address);
+        final int slot = loop.requests().acquire(null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _connect(pointer, address,
+                                   port, slot,
+                                   ipv6);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
     }
 
     @Override
@@ -88,7 +185,16 @@ public class TCPHandle extends StreamHandle {
         return _socket_name(pointer);
     }
 
+    /**
+     * @return the address of the peer, taken from the address cache of the
+     *         loop when it has one.
+     */
     public Address getPeerName() {
+        final AddressCache cache = loop.addressCache();
+        if (cache != null) {
+            _peer_record(pointer, cache.peer());
+            return cache.lookup();
+        }
         return _peer_name(pointer);
     }
 
@@ -119,9 +225,17 @@ public class TCPHandle extends StreamHandle {
     private native int _connect(final long    ptr,
                                 final String  address,
                                 final int     port,
-                                final Object  context,
+                                final int     slot,
                                 final boolean ipv6);
 
+    private native int _bind_address(final long       ptr,
+                                     final ByteBuffer sockaddr,
+                                     final int        flags);
+
+    private native int _connect_address(final long       ptr,
+                                        final ByteBuffer sockaddr,
+                                        final int        slot);
+
     private native int _open(final long ptr,
                              final long socket);
 
@@ -129,6 +243,9 @@ public class TCPHandle extends StreamHandle {
 
     private native Address _peer_name(final long ptr);
 
+    private native int _peer_record(final long       ptr,
+                                    final ByteBuffer peer);
+
     private native int _no_delay(final long ptr,
                                  final int enable);
 
@@ -34,7 +34,13 @@ public enum TcpFlags {
      * flags can contain UV_TCP_IPV6ONLY,
      * in which case dual-stack support is disabled and only IPv6 is used.
      */
-    UV_TCP_IPV6ONLY(1);
+    UV_TCP_IPV6ONLY(1),
+    /**
+     * Sets SO_REUSEPORT before binding, so that several sockets, typically one
+     * per loop, can listen on the same address and the kernel balances
+     * incoming connections across them. Not supported on Windows.
+     */
+    UV_TCP_REUSEPORT(2);
 
     public final int value;
 
@@ -81,6 +81,9 @@ public class TimerHandle extends Handle {
      * The timestamp increases monotonically from some arbitrary point in time.
      * Don't make assumptions about the starting point, you will only get
      * disappointed.
+     * <p>
+     * This updates the cached time of the loop first, {@link LoopHandle#now()}
+     * reads the cached time without a native call.
      * 
      * @return current timestamp in milliseconds.
      */
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+
+/**
+ * Many lightweight timeouts driven by a single repeating {@link TimerHandle},
+ * for idle and read timeouts of large numbers of connections.
+ * <p>
+ * Timeouts are kept in a hashed wheel of buckets, one per tick. Scheduling,
+ * cancelling and rescheduling link or unlink a node and take constant time,
+ * without native calls. A timeout fires on the first tick at or after its
+ * delay, counted from the last tick the wheel processed, so it may fire up to
+ * one tick early or late. The timer only runs while timeouts are pending.
+ * <p>
+ * To be used on the loop thread.
+ */
+public final class TimerWheel implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * A task scheduled on a {@link TimerWheel}.
+     */
+    public static final class Timeout {
+
+        private final TimerWheel wheel;
+
+        private final Runnable task;
+
+        private long deadline;
+
+        // bucket list while pending
+        private Timeout prev;
+
+        private Timeout next;
+
+        // list of the timeouts a tick expires
+        private Timeout nextExpired;
+
+        private int state;
+
+        Timeout(final TimerWheel wheel,
+                final Runnable   task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        /**
+         * @return {@code true} if the timeout was pending and will not fire.
+         */
+        public boolean cancel() {
+            if (state != PENDING && state != EXPIRING) {
+                return false;
+            }
+            wheel.remove(this);
+            state = CANCELLED;
+            return true;
+        }
+
+        /**
+         * Schedule the timeout again, whether it is pending, fired or was
+         * cancelled.
+         */
+        public void reschedule(final long delayMillis) {
+            if (state == PENDING || state == EXPIRING) {
+                wheel.remove(this);
+            }
+            wheel.add(this, delayMillis);
+        }
+
+        public boolean isPending() {
+            return state == PENDING || state == EXPIRING;
+        }
+    }
+
+    private static final int PENDING = 1;
+
+    // taken off its bucket by a tick, about to run
+    private static final int EXPIRING = 2;
+
+    private static final int FIRED = 3;
+
+    private static final int CANCELLED = 4;
+
+    private final LoopHandle loop;
+
+    private final TimerHandle timer;
+
+    private final long tick;
+
+    private final Timeout[] buckets;
+
+    private final int mask;
+
+    private final long origin;
+
+    // last tick processed, deadlines are counted from it
+    private long currentTick;
+
+    private int pending;
+
+    private boolean running;
+
+    private boolean closed;
+
+    TimerWheel(final LoopHandle loop,
+               final long       tickMillis,
+               final int        wheelSize) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.loop = loop;
+        this.tick = tickMillis;
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.timer = new TimerHandle(loop);
+        this.origin = loop.now();
+        timer.setTimerFiredCallback(status -> expire());
+    }
+
+    /**
+     * Run a task on the loop thread once the delay elapsed.
+     */
+    public Timeout schedule(final Runnable task,
+                            final long     delayMillis) {
+        requireNonNull(task);
+        final Timeout timeout = new Timeout(this, task);
+        add(timeout, delayMillis);
+        return timeout;
+    }
+
+    /**
+     * @return the number of timeouts that did not fire nor were cancelled.
+     */
+    public int size() {
+        return pending;
+    }
+
+    public long getTickMillis() {
+        return tick;
+    }
+
+    /**
+     * Drop the pending timeouts and close the timer.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < buckets.length; i++) {
+            for (Timeout timeout = buckets[i]; timeout != null; timeout = timeout.next) {
+                timeout.state = CANCELLED;
+            }
+            buckets[i] = null;
+        }
+        pending = 0;
+        timer.close();
+    }
+
+    // ------------------------------------------------------------------------
+    // ~ Private
+    // ------------------------------------------------------------------------
+
+    private void add(final Timeout timeout,
+                     final long    delayMillis) {
+        if (closed) {
+            throw new IllegalStateException("timer wheel closed");
+        }
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("delayMillis");
+        }
+        if (!running) {
+            // the wheel stood still, catch up with the clock
+            currentTick = (loop.now() - origin) / tick;
+            running = true;
+            timer.start(tick, tick);
+        }
+        final long ticks = Math.max(1, (delayMillis + tick - 1) / tick);
+        timeout.deadline = currentTick + ticks;
+        final int index = (int) (timeout.deadline & mask);
+        final Timeout head = buckets[index];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+        timeout.state = PENDING;
+        pending++;
+    }
+
+    private void remove(final Timeout timeout) {
+        if (timeout.state == PENDING) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                buckets[(int) (timeout.deadline & mask)] = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+        // an expiring timeout stays on the list of its tick, which skips it
+        pending--;
+    }
+
+    private void expire() {
+        final long target = (loop.now() - origin) / tick;
+        // a stalled loop processes every tick it missed, at most one round
+        final long first = Math.max(currentTick + 1, target - mask);
+        Timeout expired = null;
+        for (long t = first; t <= target; t++) {
+            Timeout timeout = buckets[(int) (t & mask)];
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.deadline <= target) {
+                    remove(timeout);
+                    pending++;
+                    timeout.state = EXPIRING;
+                    timeout.nextExpired = expired;
+                    expired = timeout;
+                }
+                timeout = next;
+            }
+        }
+        currentTick = Math.max(currentTick, target);
+        // the list is in reverse, order within a tick is not specified
+        for (Timeout timeout = reverse(expired); timeout != null; ) {
+            final Timeout next = timeout.nextExpired;
+            timeout.nextExpired = null;
+            if (timeout.state == EXPIRING) {
+                timeout.state = FIRED;
+                pending--;
+                try {
+                    timeout.task.run();
+                } catch (final Throwable ex) {
+                    loop.getExceptionHandler().handle(ex);
+                }
+            }
+            timeout = next;
+        }
+        if (pending == 0 && running && !closed) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    private static Timeout reverse(Timeout list) {
+        Timeout reversed = null;
+        while (list != null) {
+            final Timeout next = list.nextExpired;
+            list.nextExpired = reversed;
+            reversed = list;
+            list = next;
+        }
+        return reversed;
+    }
+}
@@ -29,14 +29,29 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 public class UDPHandle extends Handle {
 
+    /**
+     * Most datagrams libuv receives with a single {@code recvmmsg} call.
+     */
+    public static final int MAX_RECV_BATCH_SIZE = 20;
+
+    // libuv hands recvmmsg one chunk of this size per datagram
+    static final int RECV_BATCH_CHUNK_SIZE = 64 * 1024;
+
     private boolean closed;
 
     private UDPRecvCallback onRecv;
 
+    private UDPRecvBatchCallback onRecvBatch;
+
+    private final UDPRecvBatch recvBatch;
+
     private UDPSendCallback onSend;
 
     private UDPCloseCallback onClose;
@@ -60,6 +75,15 @@ public class UDPHandle extends Handle {
         onRecv = callback;
     }
 
+    /**
+     * Called with the datagrams received by handles created with
+     * {@link HandleFactory#newUDPHandle(int)}, they never use the
+     * {@link UDPRecvCallback}.
+     */
+    public void setRecvBatchCallback(final UDPRecvBatchCallback callback) {
+        onRecvBatch = callback;
+    }
+
     public void setSendCallback(final UDPSendCallback callback) {
         onSend = callback;
     }
@@ -69,9 +93,34 @@ public class UDPHandle extends Handle {
     }
 
     UDPHandle(final LoopHandle loop) {
-        super(_new(loop.pointer()), loop);
+        super(_new(loop.pointer(), 0), loop);
         this.closed = false;
+        this.recvBatch = null;
         _initialize(pointer);
+        initializePeer();
+    }
+
+    UDPHandle(final LoopHandle loop, final int recvBatchSize) {
+        super(_new(loop.pointer(), recvBatchFlags(recvBatchSize)), loop);
+        this.closed = false;
+        this.recvBatch = new UDPRecvBatch(recvBatchSize, RECV_BATCH_CHUNK_SIZE, loop.addressCache());
+        _initialize(pointer);
+        _initialize_recv_batch(pointer, recvBatch.data(), recvBatch.records(), recvBatchSize);
+    }
+
+    private void initializePeer() {
+        final AddressCache cache = loop.addressCache();
+        if (cache != null) {
+            _initialize_peer(pointer, cache.peer());
+        }
+    }
+
+    private static int recvBatchFlags(final int recvBatchSize) {
+        // checked before the native handle exists
+        if (recvBatchSize < 1 || recvBatchSize > MAX_RECV_BATCH_SIZE) {
+            throw new IllegalArgumentException("recvBatchSize");
+        }
+        return UdpFlags.UV_UDP_RECVMMSG.value;
     }
 
     public void close() {
@@ -113,6 +162,65 @@ public class UDPHandle extends Handle {
                      address, ipv6, flags);
     }
 
+    /**
+     * Like {@link #bind(int, String, boolean)}, without parsing the address.
+     */
+    public int bind(final ResolvedAddress address) {
+        return bind(address, 0);
+    }
+
+    public int bind(final ResolvedAddress   address,
+                    final EnumSet<UdpFlags> flags) {
+        int flagValue = 0;
+        for (UdpFlags next : flags) {
+            flagValue |= next.value;
+        }
+        return bind(address, flagValue);
+    }
+
+    public int bind(final ResolvedAddress address,
+                    final int             flags) {
+        requireNonNull(address);
+        return _bind_address(pointer, address.sockaddr(), flags);
+    }
+
+    /**
+     * Associate the handle with a single peer. Datagrams from other addresses
+     * are dropped by the kernel and sends without a destination go to the
+     * peer, sparing the route lookup and the address parse of each send. An
+     * unbound handle is bound to an ephemeral port first.
+     */
+    public int connect(final ResolvedAddress address) {
+        requireNonNull(address);
+        return _connect(pointer, address.sockaddr());
+    }
+
+    public int connect(final int     port,
+                       final String  host,
+                       final boolean ipv6) {
+        return connect(new ResolvedAddress(host, port, ipv6));
+    }
+
+    /**
+     * Dissolve the association made by {@link #connect(ResolvedAddress)}.
+     */
+    public int disconnect() {
+        return _connect(pointer, null);
+    }
+
+    /**
+     * @return the address of the peer the handle is connected to, taken from
+     *         the address cache of the loop when it has one.
+     */
+    public Address getPeerName() {
+        final AddressCache cache = loop.addressCache();
+        if (cache != null) {
+            _peer_record(pointer, cache.peer());
+            return cache.lookup();
+        }
+        return _peer_name(pointer);
+    }
+
     public int send(final String  str,
                     final int     port,
                     final String  host,
@@ -145,18 +253,7 @@ public class UDPHandle extends Handle {
                     final String     host,
                     final boolean    ipv6) {
         requireNonNull(buffer);
-        requireNonNull(host);
-        return buffer.hasArray()
-                ? _send(pointer, buffer,
-                        buffer.array(),
-                        0, buffer.capacity(),
-                        port, host,
-                        loop.getContext(), ipv6)
-                : _send(pointer, buffer,
-                        null, 0,
-                        buffer.capacity(), port,
-                        host, loop.getContext(),
-                        ipv6);
+        return send(buffer, 0, buffer.capacity(), port, host, ipv6);
     }
 
     public int send(final ByteBuffer buffer,
@@ -165,19 +262,250 @@ public class UDPHandle extends Handle {
                     final int        port,
                     final String     host,
                     final boolean    ipv6) {
+        return send(buffer, offset, length, port, host, ipv6, null);
+    }
+
+    /**
+     * Like {@link #send(ByteBuffer, int, String, boolean)}, without parsing
+     * the destination.
+     */
+    public int send(final ByteBuffer      buffer,
+                    final ResolvedAddress destination) {
+        requireNonNull(buffer);
+        requireNonNull(destination);
+        return send(buffer, 0, buffer.capacity(), destination, null);
+    }
+
+    public int send(final ByteBuffer      buffer,
+                    final int             offset,
+                    final int             length,
+                    final ResolvedAddress destination) {
+        requireNonNull(buffer);
+        requireNonNull(destination);
+        return send(buffer, offset, length, destination, null);
+    }
+
+    public CompletionStage<Integer> sendAsync(final ByteBuffer      buffer,
+                                              final int             offset,
+                                              final int             length,
+                                              final ResolvedAddress destination) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            requireNonNull(buffer);
+            requireNonNull(destination);
+            send(buffer, offset, length, destination, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Send to the peer of a connected handle.
+     *
+     * @see #connect(ResolvedAddress)
+     */
+    public int send(final ByteBuffer buffer) {
+        requireNonNull(buffer);
+        return send(buffer, 0, buffer.capacity());
+    }
+
+    public int send(final ByteBuffer buffer,
+                    final int        offset,
+                    final int        length) {
+        requireNonNull(buffer);
+        return send(buffer, offset, length, null, null);
+    }
+
+    public CompletionStage<Integer> sendAsync(final ByteBuffer buffer,
+                                              final int        offset,
+                                              final int        length) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            requireNonNull(buffer);
+            send(buffer, offset, length, null, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    // a null destination sends to the peer of a connected handle
+    private int send(final ByteBuffer                 buffer,
+                     final int                        offset,
+                     final int                        length,
+                     final ResolvedAddress            destination,
+                     final CompletableFuture<Integer> future) {
+        final byte[] data = buffer.hasArray() ? buffer.array() : null;
+        // heap data is copied natively, only direct memory has to stay reachable
+        final int slot = loop.requests().acquire(data == null ? buffer : null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _send_address(pointer, buffer,
+                                        data, offset,
+                                        length, destination == null ? null : destination.sockaddr(),
+                                        slot);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+    }
+
+    /**
+     * @see #sendAsync(ByteBuffer, int, int, int, String, boolean)
+     */
+    public CompletionStage<Integer> sendAsync(final ByteBuffer buffer,
+                                              final int        port,
+                                              final String     host,
+                                              final boolean    ipv6) {
+        requireNonNull(buffer);
+        return sendAsync(buffer, 0, buffer.capacity(), port, host, ipv6);
+    }
+
+    /**
+     * Like {@link #send(ByteBuffer, int, int, int, String, boolean)}, the
+     * returned stage completes on the loop thread with the status of this
+     * send or exceptionally with its error. The {@link UDPSendCallback} is
+     * called as well.
+     */
+    public CompletionStage<Integer> sendAsync(final ByteBuffer buffer,
+                                              final int        offset,
+                                              final int        length,
+                                              final int        port,
+                                              final String     host,
+                                              final boolean    ipv6) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            send(buffer, offset, length, port, host, ipv6, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private int send(final ByteBuffer                 buffer,
+                     final int                        offset,
+                     final int                        length,
+                     final int                        port,
+                     final String                     host,
+                     final boolean                    ipv6,
+                     final CompletableFuture<Integer> future) {
         requireNonNull(buffer);
         requireNonNull(host);
-        return buffer.hasArray()
-                ? _send(pointer, buffer,
-                        buffer.array(), offset,
-                        length, port,
-                        host, loop.getContext(),
-                        ipv6)
-                : _send(pointer, buffer,
-                        null, offset,
-                        length, port,
-                        host, loop.getContext(),
-                        ipv6);
+        final byte[] data = buffer.hasArray() ? buffer.array() : null;
+        // heap data is copied natively, only direct memory has to stay reachable
+        final int slot = loop.requests().acquire(data == null ? buffer : null, loop.getContext(), future);
+        boolean queued = false;
+        try {
+            final int r = _send(pointer, buffer,
+                                data, offset,
+                                length, port,
+                                host, slot,
+                                ipv6);
+            queued = true;
+            return r;
+        } finally {
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+    }
+
+    /**
+     * Send the remaining bytes of the first {@code count} buffers, each to
+     * the destination at the same index, with a single native call. Where
+     * the kernel supports it, as many datagrams as the socket takes are
+     * written with {@code sendmmsg} right away, the others are queued. The
+     * positions of the buffers are not changed.
+     * <p>
+     * The {@link UDPSendCallback} is not called, the returned stage completes
+     * once for the whole batch, with {@code 0} or exceptionally with the
+     * error of the first datagram that failed. It may already be complete
+     * when returned.
+     */
+    public CompletionStage<Integer> sendBatch(final ByteBuffer[]      buffers,
+                                              final ResolvedAddress[] destinations,
+                                              final int               count) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            requireNonNull(destinations);
+            sendBatch(buffers, destinations, count, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Like {@link #sendBatch(ByteBuffer[], ResolvedAddress[], int)}, all to
+     * the peer of a connected handle.
+     *
+     * @see #connect(ResolvedAddress)
+     */
+    public CompletionStage<Integer> sendBatch(final ByteBuffer[] buffers,
+                                              final int          count) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            sendBatch(buffers, null, count, future);
+        } catch (final RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void sendBatch(final ByteBuffer[]               buffers,
+                           final ResolvedAddress[]          destinations,
+                           final int                        count,
+                           final CompletableFuture<Integer> future) {
+        requireNonNull(buffers);
+        if (count < 0 || count > buffers.length || (destinations != null && count > destinations.length)) {
+            throw new IllegalArgumentException("count");
+        }
+        if (count == 0) {
+            future.complete(0);
+            return;
+        }
+        final byte[][] data = new byte[count][];
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        final ByteBuffer[] sockaddrs = destinations == null ? null : new ByteBuffer[count];
+        boolean direct = false;
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer buffer = buffers[i];
+            lengths[i] = buffer.remaining();
+            if (buffer.hasArray()) {
+                data[i] = buffer.array();
+                offsets[i] = buffer.arrayOffset() + buffer.position();
+            } else if (buffer.isDirect()) {
+                offsets[i] = buffer.position();
+                direct = true;
+            } else {
+                // read-only heap buffers do not expose their array
+                data[i] = new byte[lengths[i]];
+                buffer.duplicate().get(data[i]);
+            }
+            if (destinations != null) {
+                sockaddrs[i] = destinations[i].sockaddr();
+            }
+        }
+        // heap data is copied natively, only direct memory has to stay reachable
+        final int slot = loop.requests().acquire(direct ? Arrays.copyOf(buffers, count) : null, null, future);
+        boolean queued = false;
+        try {
+            queued = _send_batch(pointer, buffers, data, offsets, lengths, sockaddrs, count, slot) != 0;
+        } finally {
+            // also when native code returned with an error pending
+            if (!queued) {
+                loop.requests().release(slot);
+            }
+        }
+        if (!queued) {
+            // every datagram went out right away
+            future.complete(0);
+        }
     }
 
     public int recvStart() {
@@ -225,13 +553,45 @@ public class UDPHandle extends Handle {
         }
     }
 
+    private void callRecvPeer(final int        nread,
+                              final ByteBuffer data) {
+        callRecv(nread, data, loop.addressCache().lookup());
+    }
+
+    private void callRecvBatch(final int status) {
+        if (onRecvBatch != null) {
+            recvBatch.setSize(status > 0 ? status : 0);
+            try {
+                loop.getCallbackHandler()
+                    .handleUDPRecvBatchCallback(onRecvBatch, status, recvBatch);
+            } finally {
+                recvBatch.setSize(0);
+            }
+        }
+    }
+
+    static Address batchAddress(final ByteBuffer records, final int index) {
+        return _batch_address(records, index);
+    }
+
     private void callSend(final int       status,
                           final Exception error,
-                          final Object    context) {
+                          final int       slot) {
+        final CompletableFuture<Integer> future = loop.requests().future(slot);
+        final Object context = loop.requests().release(slot);
         if (onSend != null) {
             loop.getCallbackHandler(context)
                 .handleUDPSendCallback(onSend, status, error);
         }
+        RequestTable.complete(future, status, error);
+    }
+
+    private void callSendBatch(final int       status,
+                               final Exception error,
+                               final int       slot) {
+        final CompletableFuture<Integer> future = loop.requests().future(slot);
+        loop.requests().release(slot);
+        RequestTable.complete(future, status, error);
     }
 
     private void callClose() {
@@ -245,14 +605,30 @@ public class UDPHandle extends Handle {
     // ~ Native
     // ------------------------------------------------------------------------
 
-    private static native long _new(long loop);
+    private static native long _new(long loop, int flags);
 
     private static native void _static_initialize();
 
     private native void _initialize(long ptr);
 
+    private native void _initialize_recv_batch(long       ptr,
+                                               ByteBuffer data,
+                                               ByteBuffer records,
+                                               int        capacity);
+
+    private native void _initialize_peer(long       ptr,
+                                         ByteBuffer peer);
+
+    private static native Address _batch_address(ByteBuffer records,
+                                                 int        index);
+
     private native Address _address(long ptr);
 
+    private native Address _peer_name(long ptr);
+
+    private native int _peer_record(long       ptr,
+                                    ByteBuffer peer);
+
     private native int _bind(long    ptr,
                              int     port,
                              String  host,
@@ -266,9 +642,33 @@ public class UDPHandle extends Handle {
                              int        length,
                              int        port,
                              String     host,
-                             Object     context,
+                             int        slot,
                              boolean    ipv6);
 
+    private native int _bind_address(long       ptr,
+                                     ByteBuffer sockaddr,
+                                     int        flags);
+
+    private native int _connect(long       ptr,
+                                ByteBuffer sockaddr);
+
+    private native int _send_address(long       ptr,
+                                     ByteBuffer buffer,
+                                     byte[]     data,
+                                     int        offset,
+                                     int        length,
+                                     ByteBuffer sockaddr,
+                                     int        slot);
+
+    private native int _send_batch(long         ptr,
+                                   ByteBuffer[] buffers,
+                                   byte[][]     data,
+                                   int[]        offsets,
+                                   int[]        lengths,
+                                   ByteBuffer[] sockaddrs,
+                                   int          count,
+                                   int          slot);
+
     private native int _recv_start(long ptr);
 
     private native int _recv_stop(long ptr);
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Datagrams received by a single {@code recvmmsg} call of a batched
+ * {@link UDPHandle}.
+ * <p>
+ * The payloads share one native buffer and the peer addresses are kept in
+ * their binary form, the accessors taking an index do not allocate. The batch
+ * and its buffer are reused by the next receive, nothing may be retained past
+ * the {@link UDPRecvBatchCallback}.
+ *
+ * @see HandleFactory#newUDPHandle(int)
+ */
+public final class UDPRecvBatch {
+
+    // must match struct RecvRecord in udp.h
+    static final int RECORD_SIZE = 32;
+
+    private static final int OFFSET = 0;
+
+    private static final int LENGTH = 4;
+
+    private static final int FAMILY = 8;
+
+    private static final int PORT = 10;
+
+    private static final int ADDRESS = 12;
+
+    private static final int FLAGS = 28;
+
+    private final ByteBuffer data;
+
+    private final ByteBuffer records;
+
+    private final AddressCache addressCache;
+
+    private int size;
+
+    UDPRecvBatch(final int capacity, final int datagramSize, final AddressCache addressCache) {
+        data = ByteBuffer.allocateDirect(capacity * datagramSize);
+        records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        this.addressCache = addressCache;
+    }
+
+    ByteBuffer data() {
+        return data;
+    }
+
+    ByteBuffer records() {
+        return records;
+    }
+
+    void setSize(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return number of datagrams in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the buffer holding every payload of the batch, see
+     *         {@link #offset(int)} and {@link #length(int)}. Its position and
+     *         limit are not used.
+     */
+    public ByteBuffer buffer() {
+        return data;
+    }
+
+    /**
+     * @return position of the payload of the given datagram in
+     *         {@link #buffer()}.
+     */
+    public int offset(final int index) {
+        return records.getInt(record(index) + OFFSET);
+    }
+
+    /**
+     * @return length of the payload of the given datagram.
+     */
+    public int length(final int index) {
+        return records.getInt(record(index) + LENGTH);
+    }
+
+    /**
+     * @return true if the given datagram was truncated, see
+     *         {@link UdpFlags#UV_UDP_PARTIAL}.
+     */
+    public boolean isPartial(final int index) {
+        return (records.getInt(record(index) + FLAGS) & UdpFlags.UV_UDP_PARTIAL.value) != 0;
+    }
+
+    /**
+     * @return true if the given datagram was sent from an ipv6 address.
+     */
+    public boolean isIPv6(final int index) {
+        return (records.getShort(record(index) + FAMILY) & 0xffff) == 6;
+    }
+
+    /**
+     * @return port the given datagram was sent from.
+     */
+    public int port(final int index) {
+        return records.getShort(record(index) + PORT) & 0xffff;
+    }
+
+    /**
+     * Copy the address the given datagram was sent from, in network byte
+     * order.
+     *
+     * @param into at least 4 bytes for ipv4 and 16 bytes for ipv6 addresses.
+     * @return number of bytes copied, 4 or 16.
+     */
+    public int address(final int index, final byte[] into) {
+        final int record = record(index);
+        final int length = isIPv6(index) ? 16 : 4;
+        for (int i = 0; i < length; i++) {
+            into[i] = records.get(record + ADDRESS + i);
+        }
+        return length;
+    }
+
+    /**
+     * @return the ipv4 address the given datagram was sent from, as an int
+     *         whose most significant byte is the first octet, so that
+     *         {@code 127.0.0.1} is {@code 0x7f000001}.
+     */
+    public int ipv4(final int index) {
+        final int record = record(index) + ADDRESS;
+        return (records.get(record) & 0xff) << 24
+             | (records.get(record + 1) & 0xff) << 16
+             | (records.get(record + 2) & 0xff) << 8
+             | (records.get(record + 3) & 0xff);
+    }
+
+    /**
+     * @return a copy of the payload of the given datagram.
+     */
+    public ByteBuffer copy(final int index) {
+        final ByteBuffer payload = data.duplicate();
+        final int offset = offset(index);
+        payload.limit(offset + length(index)).position(offset);
+        final ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+        copy.put(payload).flip();
+        return copy;
+    }
+
+    /**
+     * @return the address the given datagram was sent from, as reported to a
+     *         {@link UDPRecvCallback}. Taken from the address cache of the
+     *         loop when it has one.
+     */
+    public Address peer(final int index) {
+        final int record = record(index);
+        if (addressCache != null) {
+            return addressCache.lookup(records, record + FAMILY);
+        }
+        return UDPHandle.batchAddress(records, index);
+    }
+
+    private int record(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("datagram " + index + " of " + size);
+        }
+        return index * RECORD_SIZE;
+    }
+}
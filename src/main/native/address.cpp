@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#include <assert.h>
+
+#include "uv.h"
+#include "libuv-java/private/exception.h"
+#include "libuv-java/jni/com_oracle_libuv_ResolvedAddress.h"
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_ResolvedAddress__1parse
+  (JNIEnv *env, jclass cls, jstring ip, jint port, jboolean ipv6, jobject sockaddr) {
+  assert(ip);
+  assert(sockaddr);
+  void* storage = env->GetDirectBufferAddress(sockaddr);
+  assert(storage);
+  assert(env->GetDirectBufferCapacity(sockaddr) >= static_cast<jlong>(sizeof(sockaddr_storage)));
+  const char* h = env->GetStringUTFChars(ip, 0);
+  int r;
+  if (ipv6 == JNI_TRUE) {
+    r = uv_ip6_addr(h, port, reinterpret_cast<sockaddr_in6*>(storage));
+  } else {
+    r = uv_ip4_addr(h, port, reinterpret_cast<sockaddr_in*>(storage));
+  }
+  if (r) {
+    ThrowException(env, r, ipv6 == JNI_TRUE ? "uv_ip6_addr" : "uv_ip4_addr", h);
+  }
+  env->ReleaseStringUTFChars(ip, h);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#include <assert.h>
+
+#include "uv.h"
+#include "libuv-java/private/batch.h"
+
+jmethodID EventBatch::_call_dispatch_mid = NULL;
+
+static void _check_cb(uv_check_t* handle) {
+  assert(handle);
+  assert(handle->data);
+  EventBatch* batch = reinterpret_cast<EventBatch*>(handle->data);
+  batch->dispatch();
+}
+
+void EventBatch::static_initialize(JNIEnv* env, jclass cls) {
+  _call_dispatch_mid = env->GetMethodID(cls, "callDispatchEvents", "(I)V");
+  assert(_call_dispatch_mid);
+}
+
+EventBatch::EventBatch(JNIEnv* env, jobject instance, uv_loop_t* loop,
+                       void* events, int32_t capacity,
+                       char* arena, size_t arena_size, size_t chunk_size) {
+  assert(env);
+  assert(instance);
+  assert(events);
+  assert(capacity > 0);
+  _env = env;
+  _instance = env->NewGlobalRef(instance);
+  _events = reinterpret_cast<Event*>(events);
+  _capacity = capacity;
+  _count = 0;
+  _arena = arena;
+  _arena_size = arena_size;
+  _chunk_size = chunk_size;
+  _tail = 0;
+  uv_check_init(loop, &_check);
+  _check.data = this;
+  uv_check_start(&_check, _check_cb);
+  // the batch alone must not keep the loop running
+  uv_unref(reinterpret_cast<uv_handle_t*>(&_check));
+}
+
+EventBatch::~EventBatch() {
+  _env->DeleteGlobalRef(_instance);
+}
+
+void EventBatch::close() {
+  uv_close(reinterpret_cast<uv_handle_t*>(&_check), _close_cb);
+}
+
+void EventBatch::_close_cb(uv_handle_t* handle) {
+  assert(handle);
+  assert(handle->data);
+  delete reinterpret_cast<EventBatch*>(handle->data);
+}
+
+bool EventBatch::alloc(uv_buf_t* buf) {
+  if (!_arena || _arena_size - _tail < _chunk_size) {
+    return false;
+  }
+  buf->base = _arena + _tail;
+  buf->len = _chunk_size;
+  return true;
+}
+
+void EventBatch::read(int32_t handle, const char* base, size_t nread) {
+  assert(owns(base));
+  size_t offset = static_cast<size_t>(base - _arena);
+  assert(offset + nread <= _arena_size);
+  _tail = offset + nread;
+  append(handle, EVENT_READ, static_cast<int32_t>(offset), static_cast<int32_t>(nread), 0);
+}
+
+void EventBatch::write(int32_t handle, int32_t slot) {
+  // the queue size is stale by the time java sees the event, it asks again
+  append(handle, EVENT_WRITE, 0, 0, slot);
+}
+
+void EventBatch::append(int32_t handle, int32_t type, int32_t offset, int32_t length, int64_t value) {
+  assert(_count < _capacity);
+  Event* event = _events + _count;
+  event->handle = handle;
+  event->type = type;
+  event->offset = offset;
+  event->length = length;
+  event->value = value;
+  if (++_count == _capacity) {
+    dispatch();
+  }
+}
+
+void EventBatch::dispatch() {
+  if (_count == 0) {
+    return;
+  }
+  int32_t count = _count;
+  _env->CallVoidMethod(_instance, _call_dispatch_mid, count);
+  // reads and write completions are never reported from within an upcall
+  assert(_count == count);
+  // nothing refers to the ring or the arena once java returned
+  _count = 0;
+  _tail = 0;
+}
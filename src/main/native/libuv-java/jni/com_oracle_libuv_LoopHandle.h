@@ -7,13 +7,19 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_oracle_libuv_LoopHandle_EVENT_SIZE
+#define com_oracle_libuv_LoopHandle_EVENT_SIZE 24L
+#undef com_oracle_libuv_LoopHandle_EVENT_READ
+#define com_oracle_libuv_LoopHandle_EVENT_READ 1L
+#undef com_oracle_libuv_LoopHandle_EVENT_WRITE
+#define com_oracle_libuv_LoopHandle_EVENT_WRITE 2L
 /*
  * Class:     com_oracle_libuv_LoopHandle
  * Method:    _new
- * Signature: ()J
+ * Signature: (IJJ)J
  */
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new
-  (JNIEnv *, jclass);
+  (JNIEnv *, jclass, jint, jlong, jlong);
 
 /*
  * Class:     com_oracle_libuv_LoopHandle
@@ -50,10 +56,10 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1destroy
 /*
  * Class:     com_oracle_libuv_LoopHandle
  * Method:    _close_all
- * Signature: (J)V
+ * Signature: (JJJ)V
  */
 JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1all
-  (JNIEnv *, jobject, jlong);
+  (JNIEnv *, jobject, jlong, jlong, jlong);
 
 /*
  * Class:     com_oracle_libuv_LoopHandle
@@ -65,19 +71,67 @@ JNIEXPORT jobjectArray JNICALL Java_com_oracle_libuv_LoopHandle__1list
 
 /*
  * Class:     com_oracle_libuv_LoopHandle
- * Method:    _get_last_error
- * Signature: (J)Lcom/oracle/libuv/NativeException;
+ * Method:    _buffer_pool_stats
+ * Signature: (J)[J
  */
-JNIEXPORT jthrowable JNICALL Java_com_oracle_libuv_LoopHandle__1get_1last_1error
+JNIEXPORT jlongArray JNICALL Java_com_oracle_libuv_LoopHandle__1buffer_1pool_1stats
   (JNIEnv *, jobject, jlong);
 
 /*
  * Class:     com_oracle_libuv_LoopHandle
- * Method:    _set_last_error
- * Signature: (JI)V
+ * Method:    _clock
+ * Signature: (J)Ljava/nio/ByteBuffer;
  */
-JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1set_1last_1error
-  (JNIEnv *, jobject, jlong, jint);
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_LoopHandle__1clock
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _update_time
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1update_1time
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _hrtime
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1hrtime
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _new_batch
+ * Signature: (JLjava/nio/ByteBuffer;ILjava/nio/ByteBuffer;I)J
+ */
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new_1batch
+  (JNIEnv *, jobject, jlong, jobject, jint, jobject, jint);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _close_batch
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1batch
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _new_metrics
+ * Signature: (JLjava/nio/ByteBuffer;J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new_1metrics
+  (JNIEnv *, jobject, jlong, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_LoopHandle
+ * Method:    _close_metrics
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1metrics
+  (JNIEnv *, jobject, jlong);
 
 #ifdef __cplusplus
 }
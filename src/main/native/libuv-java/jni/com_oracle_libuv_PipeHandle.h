@@ -7,6 +7,8 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_oracle_libuv_PipeHandle_SUGGESTED_READ_SIZE
+#define com_oracle_libuv_PipeHandle_SUGGESTED_READ_SIZE 65536L
 /*
  * Class:     com_oracle_libuv_PipeHandle
  * Method:    _new
@@ -26,10 +28,50 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1bind
 /*
  * Class:     com_oracle_libuv_PipeHandle
  * Method:    _connect
- * Signature: (JLjava/lang/String;Ljava/lang/Object;)V
+ * Signature: (JLjava/lang/String;I)V
  */
 JNIEXPORT void JNICALL Java_com_oracle_libuv_PipeHandle__1connect
-  (JNIEnv *, jobject, jlong, jstring, jobject);
+  (JNIEnv *, jobject, jlong, jstring, jint);
+
+/*
+ * Class:     com_oracle_libuv_PipeHandle
+ * Method:    _open
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1open
+  (JNIEnv *, jobject, jlong, jint);
+
+/*
+ * Class:     com_oracle_libuv_PipeHandle
+ * Method:    _write2
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1write2
+  (JNIEnv *, jobject, jlong, jlong, jint);
+
+/*
+ * Class:     com_oracle_libuv_PipeHandle
+ * Method:    _pending_count
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1pending_1count
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_PipeHandle
+ * Method:    _pending_type
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1pending_1type
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_PipeHandle
+ * Method:    _socket_pair
+ * Signature: ()[I
+ */
+JNIEXPORT jintArray JNICALL Java_com_oracle_libuv_PipeHandle__1socket_1pair
+  (JNIEnv *, jclass);
 
 #ifdef __cplusplus
 }
@@ -0,0 +1,23 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class com_oracle_libuv_ResolvedAddress */
+
+#ifndef _Included_com_oracle_libuv_ResolvedAddress
+#define _Included_com_oracle_libuv_ResolvedAddress
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef com_oracle_libuv_ResolvedAddress_SOCKADDR_SIZE
+#define com_oracle_libuv_ResolvedAddress_SOCKADDR_SIZE 128L
+/*
+ * Class:     com_oracle_libuv_ResolvedAddress
+ * Method:    _parse
+ * Signature: (Ljava/lang/String;IZLjava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_ResolvedAddress__1parse
+  (JNIEnv *, jclass, jstring, jint, jboolean, jobject);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
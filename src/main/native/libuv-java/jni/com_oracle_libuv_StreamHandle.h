@@ -7,6 +7,8 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_oracle_libuv_StreamHandle_SUGGESTED_READ_SIZE
+#define com_oracle_libuv_StreamHandle_SUGGESTED_READ_SIZE 65536L
 /*
  * Class:     com_oracle_libuv_StreamHandle
  * Method:    _static_initialize
@@ -39,6 +41,38 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1read_1start
 JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1read_1stop
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     com_oracle_libuv_StreamHandle
+ * Method:    _lease_reads
+ * Signature: (JZ)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1lease_1reads
+  (JNIEnv *, jobject, jlong, jboolean);
+
+/*
+ * Class:     com_oracle_libuv_StreamHandle
+ * Method:    _batch_dispatch
+ * Signature: (JJI)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1batch_1dispatch
+  (JNIEnv *, jobject, jlong, jlong, jint);
+
+/*
+ * Class:     com_oracle_libuv_StreamHandle
+ * Method:    _provide_reads
+ * Signature: (JZ)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1provide_1reads
+  (JNIEnv *, jobject, jlong, jboolean);
+
+/*
+ * Class:     com_oracle_libuv_StreamHandle
+ * Method:    _release_read_buffer
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1release_1read_1buffer
+  (JNIEnv *, jclass, jlong, jlong);
+
 /*
  * Class:     com_oracle_libuv_StreamHandle
  * Method:    _readable
@@ -58,18 +92,26 @@ JNIEXPORT jboolean JNICALL Java_com_oracle_libuv_StreamHandle__1writable
 /*
  * Class:     com_oracle_libuv_StreamHandle
  * Method:    _write
- * Signature: (JLjava/nio/ByteBuffer;[BIILjava/lang/Object;)I
+ * Signature: (JLjava/nio/ByteBuffer;[BIII)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1write
-  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint, jobject);
+  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint, jint);
+
+/*
+ * Class:     com_oracle_libuv_StreamHandle
+ * Method:    _try_write
+ * Signature: (JLjava/nio/ByteBuffer;[BII)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1try_1write
+  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint);
 
 /*
  * Class:     com_oracle_libuv_StreamHandle
  * Method:    _writev
- * Signature: (J[[BILjava/lang/Object;)I
+ * Signature: (J[Ljava/nio/ByteBuffer;[[B[I[III)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1writev
-  (JNIEnv *, jobject, jlong, jobjectArray, jint, jobject);
+  (JNIEnv *, jobject, jlong, jobjectArray, jobjectArray, jintArray, jintArray, jint, jint);
 
 /*
  * Class:     com_oracle_libuv_StreamHandle
@@ -90,10 +132,10 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1close
 /*
  * Class:     com_oracle_libuv_StreamHandle
  * Method:    _close_write
- * Signature: (JLjava/lang/Object;)I
+ * Signature: (JI)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1close_1write
-  (JNIEnv *, jobject, jlong, jobject);
+  (JNIEnv *, jobject, jlong, jint);
 
 /*
  * Class:     com_oracle_libuv_StreamHandle
@@ -7,6 +7,8 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_oracle_libuv_TCPHandle_SUGGESTED_READ_SIZE
+#define com_oracle_libuv_TCPHandle_SUGGESTED_READ_SIZE 65536L
 /*
  * Class:     com_oracle_libuv_TCPHandle
  * Method:    _new
@@ -18,7 +20,7 @@ JNIEXPORT jlong JNICALL Java_com_oracle_libuv_TCPHandle__1new
 /*
  * Class:     com_oracle_libuv_TCPHandle
  * Method:    _bind
- * Signature: (JLjava/lang/String;IZ)I
+ * Signature: (JLjava/lang/String;IZI)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1bind
   (JNIEnv *, jobject, jlong, jstring, jint, jboolean, jint);
@@ -26,10 +28,26 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1bind
 /*
  * Class:     com_oracle_libuv_TCPHandle
  * Method:    _connect
- * Signature: (JLjava/lang/String;ILjava/lang/Object;Z)I
+ * Signature: (JLjava/lang/String;IIZ)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1connect
-  (JNIEnv *, jobject, jlong, jstring, jint, jobject, jboolean);
+  (JNIEnv *, jobject, jlong, jstring, jint, jint, jboolean);
+
+/*
+ * Class:     com_oracle_libuv_TCPHandle
+ * Method:    _bind_address
+ * Signature: (JLjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1bind_1address
+  (JNIEnv *, jobject, jlong, jobject, jint);
+
+/*
+ * Class:     com_oracle_libuv_TCPHandle
+ * Method:    _connect_address
+ * Signature: (JLjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1connect_1address
+  (JNIEnv *, jobject, jlong, jobject, jint);
 
 /*
  * Class:     com_oracle_libuv_TCPHandle
@@ -55,6 +73,14 @@ JNIEXPORT jobject JNICALL Java_com_oracle_libuv_TCPHandle__1socket_1name
 JNIEXPORT jobject JNICALL Java_com_oracle_libuv_TCPHandle__1peer_1name
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     com_oracle_libuv_TCPHandle
+ * Method:    _peer_record
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1peer_1record
+  (JNIEnv *, jobject, jlong, jobject);
+
 /*
  * Class:     com_oracle_libuv_TCPHandle
  * Method:    _no_delay
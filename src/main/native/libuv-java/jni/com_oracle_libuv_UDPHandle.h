@@ -7,13 +7,17 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+#undef com_oracle_libuv_UDPHandle_MAX_RECV_BATCH_SIZE
+#define com_oracle_libuv_UDPHandle_MAX_RECV_BATCH_SIZE 20L
+#undef com_oracle_libuv_UDPHandle_RECV_BATCH_CHUNK_SIZE
+#define com_oracle_libuv_UDPHandle_RECV_BATCH_CHUNK_SIZE 65536L
 /*
  * Class:     com_oracle_libuv_UDPHandle
  * Method:    _new
- * Signature: (J)J
+ * Signature: (JI)J
  */
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_UDPHandle__1new
-  (JNIEnv *, jclass, jlong);
+  (JNIEnv *, jclass, jlong, jint);
 
 /*
  * Class:     com_oracle_libuv_UDPHandle
@@ -31,6 +35,30 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1static_1initialize
 JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _initialize_recv_batch
+ * Signature: (JLjava/nio/ByteBuffer;Ljava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize_1recv_1batch
+  (JNIEnv *, jobject, jlong, jobject, jobject, jint);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _initialize_peer
+ * Signature: (JLjava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize_1peer
+  (JNIEnv *, jobject, jlong, jobject);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _batch_address
+ * Signature: (Ljava/nio/ByteBuffer;I)Lcom/oracle/libuv/Address;
+ */
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1batch_1address
+  (JNIEnv *, jclass, jobject, jint);
+
 /*
  * Class:     com_oracle_libuv_UDPHandle
  * Method:    _address
@@ -39,10 +67,26 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize
 JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1address
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _peer_name
+ * Signature: (J)Lcom/oracle/libuv/Address;
+ */
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1peer_1name
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _peer_record
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1peer_1record
+  (JNIEnv *, jobject, jlong, jobject);
+
 /*
  * Class:     com_oracle_libuv_UDPHandle
  * Method:    _bind
- * Signature: (JILjava/lang/String;Z)I
+ * Signature: (JILjava/lang/String;ZI)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind
   (JNIEnv *, jobject, jlong, jint, jstring, jboolean, jint);
@@ -50,10 +94,42 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind
 /*
  * Class:     com_oracle_libuv_UDPHandle
  * Method:    _send
- * Signature: (JLjava/nio/ByteBuffer;[BIIILjava/lang/String;Ljava/lang/Object;Z)I
+ * Signature: (JLjava/nio/ByteBuffer;[BIIILjava/lang/String;IZ)I
  */
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send
-  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint, jint, jstring, jobject, jboolean);
+  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint, jint, jstring, jint, jboolean);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _bind_address
+ * Signature: (JLjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind_1address
+  (JNIEnv *, jobject, jlong, jobject, jint);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _connect
+ * Signature: (JLjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1connect
+  (JNIEnv *, jobject, jlong, jobject);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _send_address
+ * Signature: (JLjava/nio/ByteBuffer;[BIILjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send_1address
+  (JNIEnv *, jobject, jlong, jobject, jbyteArray, jint, jint, jobject, jint);
+
+/*
+ * Class:     com_oracle_libuv_UDPHandle
+ * Method:    _send_batch
+ * Signature: (J[Ljava/nio/ByteBuffer;[[B[I[I[Ljava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send_1batch
+  (JNIEnv *, jobject, jlong, jobjectArray, jobjectArray, jintArray, jintArray, jobjectArray, jint, jint);
 
 /*
  * Class:     com_oracle_libuv_UDPHandle
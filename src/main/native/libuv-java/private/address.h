@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#ifndef _libuv_java_address_h_
+#define _libuv_java_address_h_
+
+#include <assert.h>
+#include <stdint.h>
+#include <string.h>
+#include <jni.h>
+
+#include "uv.h"
+
+// A peer address in binary form, must match the layout read by AddressCache
+struct PeerRecord {
+  // 4 or 6, 0 when there is no address, the port in host byte order
+  uint16_t family;
+  uint16_t port;
+  // network byte order, the first four bytes for ipv4
+  uint8_t address[16];
+};
+
+inline void write_peer(PeerRecord* peer, const sockaddr* addr) {
+  memset(peer, 0, sizeof(*peer));
+  if (!addr) {
+    return;
+  }
+  if (addr->sa_family == AF_INET6) {
+    const sockaddr_in6* a6 = reinterpret_cast<const sockaddr_in6*>(addr);
+    peer->family = 6;
+    peer->port = ntohs(a6->sin6_port);
+    memcpy(peer->address, &a6->sin6_addr, 16);
+  } else if (addr->sa_family == AF_INET) {
+    const sockaddr_in* a4 = reinterpret_cast<const sockaddr_in*>(addr);
+    peer->family = 4;
+    peer->port = ntohs(a4->sin_port);
+    memcpy(peer->address, &a4->sin_addr, 4);
+  }
+}
+
+inline void peer_to_sockaddr(const PeerRecord* peer, sockaddr_storage* addr) {
+  memset(addr, 0, sizeof(*addr));
+  if (peer->family == 6) {
+    sockaddr_in6* a6 = reinterpret_cast<sockaddr_in6*>(addr);
+    a6->sin6_family = AF_INET6;
+    a6->sin6_port = htons(peer->port);
+    memcpy(&a6->sin6_addr, peer->address, 16);
+  } else {
+    sockaddr_in* a4 = reinterpret_cast<sockaddr_in*>(addr);
+    a4->sin_family = AF_INET;
+    a4->sin_port = htons(peer->port);
+    memcpy(&a4->sin_addr, peer->address, 4);
+  }
+}
+
+// the record AddressCache reads the next peer from
+inline PeerRecord* peer_record(JNIEnv* env, jobject buffer) {
+  assert(buffer);
+  PeerRecord* peer = reinterpret_cast<PeerRecord*>(env->GetDirectBufferAddress(buffer));
+  assert(peer);
+  return peer;
+}
+
+// the sockaddr parsed by ResolvedAddress._parse into the direct buffer
+inline const sockaddr* resolved_address(JNIEnv* env, jobject buffer) {
+  assert(buffer);
+  const struct sockaddr* addr = reinterpret_cast<const struct sockaddr*>(env->GetDirectBufferAddress(buffer));
+  assert(addr);
+  return addr;
+}
+
+#endif // _libuv_java_address_h_
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+#ifndef _libuv_java_batch_h_
+#define _libuv_java_batch_h_
+
+#include <stddef.h>
+#include <stdint.h>
+#include <jni.h>
+
+#include "uv.h"
+
+// Stream events recorded during one loop iteration and handed to java with a
+// single upcall, from a check handle at the end of the iteration or as soon as
+// the ring fills up. Reads land in a shared arena that is reclaimed by every
+// dispatch. It is only ever touched from the loop thread.
+class EventBatch {
+private:
+  // must match the layout read by LoopHandle.callDispatchEvents
+  struct Event {
+    int32_t handle;
+    int32_t type;
+    int32_t offset;
+    int32_t length;
+    int64_t value;
+  };
+
+  static jmethodID _call_dispatch_mid;
+
+  JNIEnv* _env;
+  jobject _instance;
+  uv_check_t _check;
+
+  static void _close_cb(uv_handle_t* handle);
+
+  Event* _events;
+  int32_t _capacity;
+  int32_t _count;
+
+  char* _arena;
+  size_t _arena_size;
+  size_t _chunk_size;
+  size_t _tail;
+
+  void append(int32_t handle, int32_t type, int32_t offset, int32_t length, int64_t value);
+
+public:
+  enum {
+    EVENT_READ = 1,
+    EVENT_WRITE
+  };
+
+  static void static_initialize(JNIEnv* env, jclass cls);
+
+  EventBatch(JNIEnv* env, jobject instance, uv_loop_t* loop,
+             void* events, int32_t capacity,
+             char* arena, size_t arena_size, size_t chunk_size);
+  ~EventBatch();
+
+  inline bool owns(const uv_handle_t* handle) {
+    return handle == reinterpret_cast<uv_handle_t*>(&_check);
+  }
+  // close the check handle, the instance deletes itself in its close callback
+  void close();
+
+  // hand out the free end of the arena, false when less than a chunk is left
+  bool alloc(uv_buf_t* buf);
+  inline bool owns(const char* base) {
+    return base >= _arena && base < _arena + _arena_size;
+  }
+  // record nread bytes read into a buffer handed out by alloc
+  void read(int32_t handle, const char* base, size_t nread);
+  // record a successful write completion
+  void write(int32_t handle, int32_t slot);
+  // deliver the recorded events, called before any other upcall of a stream
+  // so that java sees them in order
+  void dispatch();
+};
+
+#endif // _libuv_java_batch_h_
@@ -29,23 +29,22 @@
 #include <jni.h>
 
 #include "uv.h"
+#include "libuv-java/private/pool.h"
 
+// The java objects a request refers to live in the loop's RequestTable, the
+// holder only knows their slot and is handed back with the completion upcall.
 class ContextHolder {
   private:
-    jobject _context;
-    jobject _data;
-    jobjectArray _buffers;
-    jobject* _elements;
-    jbyte** _bases;
-    int _element_count;
-    JNIEnv* _env;
+    jint _slot;
+    char* _storage;
+    BufferPool* _pool;
 
   public:
-    inline jobject context() { return _context; }
-    inline jobject data() { return _data; }
-    ContextHolder(JNIEnv* env, jobject data, jobject context);
-    ContextHolder(JNIEnv* env, jobject context);
-    void set_elements(jobjectArray buffers, jobject* elements, jbyte** bases, int count);
+    inline jint slot() { return _slot; }
+    explicit ContextHolder(jint slot);
+    // native memory holding a copy of the request's heap data, handed back to
+    // the pool it was allocated from when the holder is deleted
+    void set_storage(char* storage, BufferPool* pool);
     ~ContextHolder();
 };
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#ifndef _libuv_java_metrics_h_
+#define _libuv_java_metrics_h_
+
+#include <stdint.h>
+#include <jni.h>
+
+#include "uv.h"
+
+// Loop iteration timings and handle counts, sampled by a prepare handle on
+// every iteration and published to java by a repeating timer. Both handles are
+// unreferenced so they never keep the loop alive, close() has to be called
+// before the loop is closed. It is only ever touched from the loop thread.
+class LoopMetrics {
+private:
+  static jmethodID _call_publish_mid;
+
+  JNIEnv* _env;
+  jobject _instance;
+  uv_loop_t* _loop;
+  uv_prepare_t _prepare;
+  uv_timer_t _timer;
+
+  // uv_handle_type indexed, read by LoopHandle.callPublishMetrics
+  int32_t* _counts;
+  int64_t _pending_write_bytes;
+
+  uint64_t _iterations;
+  uint64_t _start;
+  uint64_t _last_prepare;
+  uint64_t _last_idle;
+  uint64_t _max_iteration;
+
+  // handles not closed yet, the instance is deleted once none is left
+  int _open_handles;
+
+  static void _prepare_cb(uv_prepare_t* handle);
+  static void _close_cb(uv_handle_t* handle);
+  static void _timer_cb(uv_timer_t* handle);
+  static void _walk_cb(uv_handle_t* handle, void* arg);
+
+public:
+  static void static_initialize(JNIEnv* env, jclass cls);
+
+  LoopMetrics(JNIEnv* env, jobject instance, uv_loop_t* loop,
+              int32_t* counts, uint64_t interval);
+  ~LoopMetrics();
+
+  inline bool owns(const uv_handle_t* handle) {
+    return handle == reinterpret_cast<uv_handle_t*>(&_prepare) ||
+           handle == reinterpret_cast<uv_handle_t*>(&_timer);
+  }
+  // close the handles, the instance deletes itself in the last close callback
+  void close();
+
+  // account for the iteration that ended at the prepare handle
+  void sample();
+  // count the handles of the loop and hand the totals to java
+  void publish();
+};
+
+#endif // _libuv_java_metrics_h_
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#ifndef _libuv_java_pool_h_
+#define _libuv_java_pool_h_
+
+#include <stddef.h>
+#include <stdint.h>
+
+#include "uv.h"
+
+// A per-loop free list of fixed size read buffers, shared by the stream and
+// udp read paths. It is only ever touched from the loop thread.
+class BufferPool {
+private:
+  static const size_t SLAB_FRACTION = 4;
+
+  struct Block {
+    Block* next;
+    uint32_t capacity;
+    uint32_t pooled;
+  };
+
+  size_t _slab_size;
+  size_t _max_pooled_bytes;
+  size_t _handle_cap;
+  size_t _pooled_bytes;
+  Block* _free;
+
+  int64_t _hits;
+  int64_t _misses;
+
+  static inline Block* block_of(char* base) {
+    return reinterpret_cast<Block*>(base - sizeof(Block));
+  }
+
+public:
+  BufferPool(size_t slab_size, size_t max_pooled_bytes, size_t handle_cap);
+  ~BufferPool();
+
+  // the pool attached to the loop by LoopHandle._new
+  static inline BufferPool* from(uv_loop_t* loop) {
+    return reinterpret_cast<BufferPool*>(loop->data);
+  }
+
+  // hand out a block, outstanding tracks the pooled bytes held by one handle
+  void acquire(uv_buf_t* buf, size_t* outstanding);
+  // return a block handed out by acquire, base may be NULL and outstanding
+  // is NULL for blocks that were detached from their handle
+  void release(char* base, size_t* outstanding);
+  // hand the ownership of a block to java, it no longer counts against the
+  // handle and comes back through release(base, NULL)
+  void detach(char* base, size_t* outstanding);
+  // a block of at least size bytes that is not accounted to any handle and
+  // comes back through release(base, NULL), requests of at least a
+  // SLAB_FRACTION of the slab get a reusable slab, smaller ones an exact fit
+  char* allocate(size_t size);
+
+  inline size_t slab_size() { return _slab_size; }
+  inline size_t pooled_bytes() { return _pooled_bytes; }
+  inline int64_t hits() { return _hits; }
+  inline int64_t misses() { return _misses; }
+};
+
+#endif // _libuv_java_pool_h_
@@ -29,6 +29,8 @@
 #include <jni.h>
 
 #include "uv.h"
+#include "libuv-java/private/batch.h"
+#include "libuv-java/private/pool.h"
 
 class StreamCallbacks {
 private:
@@ -40,6 +42,10 @@ private:
 
   static jmethodID _address_init_mid;
   static jmethodID _call_read_callback_mid;
+  static jmethodID _call_read_lease_callback_mid;
+  static jmethodID _call_read_provided_callback_mid;
+  static jmethodID _call_read_no_buffer_callback_mid;
+  static jmethodID _call_alloc_callback_mid;
   static jmethodID _call_write_callback_mid;
   static jmethodID _call_connect_callback_mid;
   static jmethodID _call_connection_callback_mid;
@@ -48,6 +54,11 @@ private:
 
   JNIEnv* _env;
   jobject _instance;
+  size_t _pooled_bytes;
+  bool _lease_reads;
+  bool _provided_reads;
+  EventBatch* _batch;
+  int32_t _batch_id;
 
 public:
   static void static_initialize(JNIEnv *env, jclass cls);
@@ -59,12 +70,17 @@ public:
   ~StreamCallbacks();
 
   void initialize(JNIEnv *env, jobject instance);
+  inline void set_lease_reads(bool lease) { _lease_reads = lease; }
+  inline void set_provided_reads(bool provided) { _provided_reads = provided; }
+  inline bool provided_reads() const { return _provided_reads; }
+  inline void set_batch(EventBatch* batch, int32_t id) { _batch = batch; _batch_id = id; }
   void throw_exception(int code, const char* message);
 
-  void on_read(const uv_buf_t* buf, jsize nread);
-  void on_write(int status, int error_code, jobject buffer, jobject domain);
-  void on_shutdown(int status, int error_code, jobject domain);
-  void on_connect(int status, int error_code, jobject domain);
+  void on_alloc(BufferPool* pool, size_t suggested_size, uv_buf_t* buf);
+  void on_read(BufferPool* pool, const uv_buf_t* buf, jsize nread);
+  void on_write(int status, int error_code, jint slot, size_t queue_size);
+  void on_shutdown(int status, int error_code, jint slot);
+  void on_connect(int status, int error_code, jint slot);
   void on_connection(int status, int error_code);
   void on_close();
 };
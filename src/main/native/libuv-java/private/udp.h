@@ -26,20 +26,49 @@
 #ifndef _libuv_java_udp_h_
 #define _libuv_java_udp_h_
 
+#include <stdint.h>
 #include <jni.h>
 
 #include "uv.h"
+#include "libuv-java/private/address.h"
+#include "libuv-java/private/pool.h"
+
+// One datagram of a batched receive, must match the layout read by
+// UDPRecvBatch
+struct RecvRecord {
+  int32_t offset;
+  int32_t length;
+  PeerRecord peer;
+  int32_t flags;
+};
 
 class UDPCallbacks {
 private:
   static jclass _udp_handle_cid;
 
   static jmethodID _recv_callback_mid;
+  static jmethodID _recv_batch_callback_mid;
+  static jmethodID _recv_peer_callback_mid;
   static jmethodID _send_callback_mid;
+  static jmethodID _send_batch_callback_mid;
   static jmethodID _close_callback_mid;
 
   JNIEnv* _env;
   jobject _instance;
+  size_t _pooled_bytes;
+  // set when the loop caches peer addresses
+  PeerRecord* _peer;
+
+  // set for handles created with UV_UDP_RECVMMSG, the arena and the records
+  // are owned by java and reused by every batch
+  char* _batch_data;
+  size_t _batch_size;
+  RecvRecord* _records;
+  int32_t _batch_capacity;
+  int32_t _batch_count;
+
+  void on_recv_batch(ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags);
+  void flush_batch();
 
 public:
   static void static_initialize(JNIEnv* env, jclass cls);
@@ -48,10 +77,14 @@ public:
   ~UDPCallbacks();
 
   void initialize(JNIEnv *env, jobject instance);
+  void set_recv_batch(char* data, size_t size, RecvRecord* records, int32_t capacity);
+  inline void set_peer(PeerRecord* peer) { _peer = peer; }
 
-  void on_recv(ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags);
-  void on_send(int status, int error_code, jobject buffer, jobject domain);
+  void on_alloc(BufferPool* pool, uv_buf_t* buf);
+  void on_recv(BufferPool* pool, ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags);
+  void on_send(int status, int error_code, jint slot);
+  void on_send_batch(int status, jint slot);
   void on_close();
 };
 
-#endif // _libuv_java_udp_h_
\ No newline at end of file
+#endif // _libuv_java_udp_h_
\ No newline at end of file
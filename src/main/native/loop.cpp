@@ -29,8 +29,11 @@
 #include <vector>
 
 #include "uv.h"
+#include "libuv-java/private/batch.h"
 #include "libuv-java/private/exception.h"
 #include "libuv-java/private/handle.h"
+#include "libuv-java/private/metrics.h"
+#include "libuv-java/private/pool.h"
 #include "libuv-java/jni/com_oracle_libuv_LoopHandle.h"
 
 static jclass _string_cid = NULL;
@@ -38,7 +41,18 @@ static jclass _string_cid = NULL;
 static void _close_cb(uv_handle_t* handle) {
 }
 
+// the helpers whose handles LoopHandle.destroy closes and frees
+struct InternalHandles {
+  LoopMetrics* metrics;
+  EventBatch* batch;
+};
+
 static void _close_all_cb(uv_handle_t* handle, void* arg) {
+  InternalHandles* internal = reinterpret_cast<InternalHandles*>(arg);
+  if ((internal->metrics && internal->metrics->owns(handle)) ||
+      (internal->batch && internal->batch->owns(handle))) {
+    return;
+  }
   if (!uv_is_closing(handle)) {
     uv_close(handle, _close_cb);
   }
@@ -56,12 +70,17 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1static_1initialize
   assert(_string_cid);
   _string_cid = (jclass) env->NewGlobalRef(_string_cid);
   assert(_string_cid);
+  EventBatch::static_initialize(env, cls);
+  LoopMetrics::static_initialize(env, cls);
 }
 
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new
-  (JNIEnv *env, jclass cls) {
+  (JNIEnv *env, jclass cls, jint slab_size, jlong max_pooled_bytes, jlong handle_cap) {
   uv_loop_t* ptr = uv_loop_new();
   assert(ptr);
+  ptr->data = new BufferPool(static_cast<size_t>(slab_size),
+                             static_cast<size_t>(max_pooled_bytes),
+                             static_cast<size_t>(handle_cap));
   return reinterpret_cast<jlong>(ptr);
 }
 
@@ -81,14 +100,19 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1destroy
   (JNIEnv *env, jobject that, jlong ptr) {
   assert(ptr);
   uv_loop_t* handle = reinterpret_cast<uv_loop_t*>(ptr);
+  BufferPool* pool = BufferPool::from(handle);
   uv_loop_delete(handle);
+  delete pool;
 }
 
 JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1all
-  (JNIEnv *env, jobject that, jlong ptr) {
+  (JNIEnv *env, jobject that, jlong ptr, jlong metrics, jlong batch) {
   assert(ptr);
   uv_loop_t* loop = reinterpret_cast<uv_loop_t*>(ptr);
-  uv_walk(loop, _close_all_cb, NULL);
+  InternalHandles internal;
+  internal.metrics = reinterpret_cast<LoopMetrics*>(metrics);
+  internal.batch = reinterpret_cast<EventBatch*>(batch);
+  uv_walk(loop, _close_all_cb, &internal);
 }
 
 JNIEXPORT jobjectArray JNICALL Java_com_oracle_libuv_LoopHandle__1list
@@ -109,3 +133,76 @@ JNIEXPORT jobjectArray JNICALL Java_com_oracle_libuv_LoopHandle__1list
   }
   return handles;
 }
+
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new_1batch
+  (JNIEnv *env, jobject that, jlong ptr, jobject events, jint capacity, jobject arena, jint chunk_size) {
+  assert(ptr);
+  assert(events);
+  assert(arena);
+  uv_loop_t* loop = reinterpret_cast<uv_loop_t*>(ptr);
+  void* ring = env->GetDirectBufferAddress(events);
+  char* base = reinterpret_cast<char*>(env->GetDirectBufferAddress(arena));
+  assert(ring);
+  assert(base);
+  EventBatch* batch = new EventBatch(env, that, loop,
+                                     ring, capacity,
+                                     base, static_cast<size_t>(env->GetDirectBufferCapacity(arena)),
+                                     static_cast<size_t>(chunk_size));
+  return reinterpret_cast<jlong>(batch);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1batch
+  (JNIEnv *env, jobject that, jlong batch) {
+  assert(batch);
+  reinterpret_cast<EventBatch*>(batch)->close();
+}
+
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1new_1metrics
+  (JNIEnv *env, jobject that, jlong ptr, jobject counts, jlong interval) {
+  assert(ptr);
+  assert(counts);
+  assert(env->GetDirectBufferCapacity(counts) >= static_cast<jlong>(sizeof(int32_t) * UV_HANDLE_TYPE_MAX));
+  uv_loop_t* loop = reinterpret_cast<uv_loop_t*>(ptr);
+  int32_t* base = reinterpret_cast<int32_t*>(env->GetDirectBufferAddress(counts));
+  assert(base);
+  LoopMetrics* metrics = new LoopMetrics(env, that, loop, base, static_cast<uint64_t>(interval));
+  return reinterpret_cast<jlong>(metrics);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1close_1metrics
+  (JNIEnv *env, jobject that, jlong metrics) {
+  assert(metrics);
+  reinterpret_cast<LoopMetrics*>(metrics)->close();
+}
+
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_LoopHandle__1clock
+  (JNIEnv *env, jobject that, jlong ptr) {
+  assert(ptr);
+  uv_loop_t* loop = reinterpret_cast<uv_loop_t*>(ptr);
+  // uv_now reads this field, java reads it in place
+  return env->NewDirectByteBuffer(&loop->time, sizeof(loop->time));
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_LoopHandle__1update_1time
+  (JNIEnv *env, jobject that, jlong ptr) {
+  assert(ptr);
+  uv_update_time(reinterpret_cast<uv_loop_t*>(ptr));
+}
+
+JNIEXPORT jlong JNICALL Java_com_oracle_libuv_LoopHandle__1hrtime
+  (JNIEnv *env, jclass cls) {
+  return static_cast<jlong>(uv_hrtime());
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_oracle_libuv_LoopHandle__1buffer_1pool_1stats
+  (JNIEnv *env, jobject that, jlong ptr) {
+  assert(ptr);
+  uv_loop_t* loop = reinterpret_cast<uv_loop_t*>(ptr);
+  BufferPool* pool = BufferPool::from(loop);
+  assert(pool);
+  jlong stats[] = { pool->hits(), pool->misses(), static_cast<jlong>(pool->pooled_bytes()) };
+  jlongArray result = env->NewLongArray(3);
+  OOMN(env, result);
+  env->SetLongArrayRegion(result, 0, 3, stats);
+  return result;
+}
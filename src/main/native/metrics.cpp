@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#include <assert.h>
+#include <string.h>
+
+#include "uv.h"
+#include "libuv-java/private/metrics.h"
+
+jmethodID LoopMetrics::_call_publish_mid = NULL;
+
+void LoopMetrics::static_initialize(JNIEnv* env, jclass cls) {
+  _call_publish_mid = env->GetMethodID(cls, "callPublishMetrics", "(JJJJJ)V");
+  assert(_call_publish_mid);
+}
+
+LoopMetrics::LoopMetrics(JNIEnv* env, jobject instance, uv_loop_t* loop,
+                         int32_t* counts, uint64_t interval) {
+  assert(env);
+  assert(instance);
+  assert(loop);
+  assert(counts);
+  assert(interval > 0);
+  _env = env;
+  _instance = env->NewGlobalRef(instance);
+  _loop = loop;
+  _counts = counts;
+  _pending_write_bytes = 0;
+  _iterations = 0;
+  _max_iteration = 0;
+  _open_handles = 2;
+  // fails once the loop has run, the idle time then stays at zero
+  uv_loop_configure(loop, UV_METRICS_IDLE_TIME);
+  _start = uv_hrtime();
+  _last_prepare = _start;
+  _last_idle = uv_metrics_idle_time(loop);
+
+  uv_prepare_init(loop, &_prepare);
+  _prepare.data = this;
+  uv_prepare_start(&_prepare, _prepare_cb);
+  uv_unref(reinterpret_cast<uv_handle_t*>(&_prepare));
+
+  uv_timer_init(loop, &_timer);
+  _timer.data = this;
+  uv_timer_start(&_timer, _timer_cb, interval, interval);
+  uv_unref(reinterpret_cast<uv_handle_t*>(&_timer));
+}
+
+LoopMetrics::~LoopMetrics() {
+  _env->DeleteGlobalRef(_instance);
+}
+
+void LoopMetrics::close() {
+  uv_close(reinterpret_cast<uv_handle_t*>(&_prepare), _close_cb);
+  uv_close(reinterpret_cast<uv_handle_t*>(&_timer), _close_cb);
+}
+
+void LoopMetrics::_close_cb(uv_handle_t* handle) {
+  assert(handle);
+  assert(handle->data);
+  LoopMetrics* metrics = reinterpret_cast<LoopMetrics*>(handle->data);
+  if (--metrics->_open_handles == 0) {
+    delete metrics;
+  }
+}
+
+void LoopMetrics::_prepare_cb(uv_prepare_t* handle) {
+  assert(handle);
+  assert(handle->data);
+  reinterpret_cast<LoopMetrics*>(handle->data)->sample();
+}
+
+void LoopMetrics::_timer_cb(uv_timer_t* handle) {
+  assert(handle);
+  assert(handle->data);
+  reinterpret_cast<LoopMetrics*>(handle->data)->publish();
+}
+
+void LoopMetrics::_walk_cb(uv_handle_t* handle, void* arg) {
+  LoopMetrics* metrics = reinterpret_cast<LoopMetrics*>(arg);
+  if (metrics->owns(handle) || uv_is_closing(handle)) {
+    return;
+  }
+  uv_handle_type type = uv_handle_get_type(handle);
+  assert(type > UV_UNKNOWN_HANDLE && type < UV_HANDLE_TYPE_MAX);
+  metrics->_counts[type]++;
+  switch (type) {
+  case UV_NAMED_PIPE:
+  case UV_TCP:
+  case UV_TTY:
+    metrics->_pending_write_bytes += uv_stream_get_write_queue_size(reinterpret_cast<uv_stream_t*>(handle));
+    break;
+  case UV_UDP:
+    metrics->_pending_write_bytes += uv_udp_get_send_queue_size(reinterpret_cast<uv_udp_t*>(handle));
+    break;
+  default:
+    break;
+  }
+}
+
+void LoopMetrics::sample() {
+  // the span between two prepare callbacks is one full iteration, the part of
+  // it spent blocked in the poll is reported by uv_metrics_idle_time
+  uint64_t now = uv_hrtime();
+  uint64_t idle = uv_metrics_idle_time(_loop);
+  uint64_t span = now - _last_prepare;
+  uint64_t idled = idle - _last_idle;
+  uint64_t busy = span > idled ? span - idled : 0;
+  if (busy > _max_iteration) {
+    _max_iteration = busy;
+  }
+  _iterations++;
+  _last_prepare = now;
+  _last_idle = idle;
+}
+
+void LoopMetrics::publish() {
+  memset(_counts, 0, sizeof(int32_t) * UV_HANDLE_TYPE_MAX);
+  _pending_write_bytes = 0;
+  uv_walk(_loop, _walk_cb, this);
+  uint64_t idle = uv_metrics_idle_time(_loop);
+  uint64_t elapsed = uv_hrtime() - _start;
+  uint64_t busy = elapsed > idle ? elapsed - idle : 0;
+  uint64_t max_iteration = _max_iteration;
+  // the maximum covers one publishing interval
+  _max_iteration = 0;
+  _env->CallVoidMethod(_instance, _call_publish_mid,
+                       static_cast<jlong>(_iterations),
+                       static_cast<jlong>(idle),
+                       static_cast<jlong>(busy),
+                       static_cast<jlong>(max_iteration),
+                       static_cast<jlong>(_pending_write_bytes));
+}
@@ -24,6 +24,10 @@
  */
 
 #include <assert.h>
+#ifndef _WIN32
+#include <sys/socket.h>
+#include <unistd.h>
+#endif
 
 #include "uv.h"
 #include "libuv-java/private/exception.h"
@@ -38,11 +42,24 @@ static void _pipe_connect_cb(uv_connect_t* req, int status) {
   assert(req->handle->data);
   ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
   StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(req->handle->data);
-  cb->on_connect(status, status < 0 ? status : 0, req_data->context());
+  cb->on_connect(status, status < 0 ? status : 0, req_data->slot());
   delete req_data;
   delete req;
 }
 
+static void _pipe_write2_cb(uv_write_t* req, int status) {
+  assert(req->handle);
+  assert(req->handle->data);
+  StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(req->handle->data);
+  ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
+  cb->on_write(status, status < 0 ? status : 0, req_data->slot(), req->handle->write_queue_size);
+  delete req_data;
+  delete req;
+}
+
+// the byte a handle travels with, a handle cannot be sent without data
+static char _handle_marker = '.';
+
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_PipeHandle__1new
   (JNIEnv *env, jclass cls, jlong loop, jboolean ipc) {
   assert(loop);
@@ -72,13 +89,83 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1bind
  }
 
 JNIEXPORT void JNICALL Java_com_oracle_libuv_PipeHandle__1connect
-  (JNIEnv *env, jobject that, jlong pipe, jstring name, jobject context) {
+  (JNIEnv *env, jobject that, jlong pipe, jstring name, jint slot) {
   assert(pipe);
   uv_pipe_t* handle = reinterpret_cast<uv_pipe_t*>(pipe);
   uv_connect_t* connect = new uv_connect_t();
-  connect->data = new ContextHolder(env, context);
+  connect->data = new ContextHolder(slot);
   connect->handle = reinterpret_cast<uv_stream_t*>(handle);
   const char *pipeName = env->GetStringUTFChars(name, 0);
   uv_pipe_connect(connect, handle, pipeName, _pipe_connect_cb);
   env->ReleaseStringUTFChars(name, pipeName);
 }
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1open
+  (JNIEnv *env, jobject that, jlong pipe, jint fd) {
+  assert(pipe);
+  uv_pipe_t* handle = reinterpret_cast<uv_pipe_t*>(pipe);
+  int r = uv_pipe_open(handle, fd);
+  if (r) {
+    ThrowException(env, r, "uv_pipe_open");
+  }
+  return r;
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1write2
+  (JNIEnv *env, jobject that, jlong pipe, jlong send, jint slot) {
+  assert(pipe);
+  assert(send);
+  uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(pipe);
+  uv_stream_t* send_handle = reinterpret_cast<uv_stream_t*>(send);
+  uv_buf_t buf = uv_buf_init(&_handle_marker, 1);
+  uv_write_t* req = new uv_write_t();
+  req->handle = handle;
+  ContextHolder* req_data = new ContextHolder(slot);
+  req->data = req_data;
+  int r = uv_write2(req, handle, &buf, 1, send_handle, _pipe_write2_cb);
+  if (r) {
+    delete req_data;
+    delete req;
+    ThrowException(env, r, "uv_write2");
+  }
+  return r;
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1pending_1count
+  (JNIEnv *env, jobject that, jlong pipe) {
+  assert(pipe);
+  uv_pipe_t* handle = reinterpret_cast<uv_pipe_t*>(pipe);
+  return uv_pipe_pending_count(handle);
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_PipeHandle__1pending_1type
+  (JNIEnv *env, jobject that, jlong pipe) {
+  assert(pipe);
+  uv_pipe_t* handle = reinterpret_cast<uv_pipe_t*>(pipe);
+  return static_cast<jint>(uv_pipe_pending_type(handle));
+}
+
+JNIEXPORT jintArray JNICALL Java_com_oracle_libuv_PipeHandle__1socket_1pair
+  (JNIEnv *env, jclass cls) {
+#ifdef _WIN32
+  // uv_pipe_open takes crt descriptors, not the sockets uv_socketpair creates
+  ThrowException(env, UV_ENOTSUP, "uv_socketpair");
+  return NULL;
+#else
+  uv_os_sock_t fds[2];
+  int r = uv_socketpair(SOCK_STREAM, 0, fds, 0, 0);
+  if (r) {
+    ThrowException(env, r, "uv_socketpair");
+    return NULL;
+  }
+  jintArray result = env->NewIntArray(2);
+  if (result == NULL) {
+    close(fds[0]);
+    close(fds[1]);
+    return NULL;
+  }
+  jint values[2] = { static_cast<jint>(fds[0]), static_cast<jint>(fds[1]) };
+  env->SetIntArrayRegion(result, 0, 2, values);
+  return result;
+#endif
+}
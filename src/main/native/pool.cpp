@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+#include <assert.h>
+#include <stdlib.h>
+
+#include "uv.h"
+#include "libuv-java/private/pool.h"
+
+#ifndef ULONG
+#define ULONG unsigned long
+#endif
+
+BufferPool::BufferPool(size_t slab_size, size_t max_pooled_bytes, size_t handle_cap) {
+  assert(slab_size > 0);
+  _slab_size = slab_size;
+  _max_pooled_bytes = max_pooled_bytes;
+  _handle_cap = handle_cap;
+  _pooled_bytes = 0;
+  _free = NULL;
+  _hits = 0;
+  _misses = 0;
+}
+
+BufferPool::~BufferPool() {
+  while (_free) {
+    Block* next = _free->next;
+    free(_free);
+    _free = next;
+  }
+  _pooled_bytes = 0;
+}
+
+void BufferPool::acquire(uv_buf_t* buf, size_t* outstanding) {
+  assert(buf);
+  assert(outstanding);
+  Block* block = NULL;
+  // a handle over its cap still gets a buffer, it just isn't a pooled one
+  bool pooled = *outstanding + _slab_size <= _handle_cap;
+  if (pooled && _free) {
+    block = _free;
+    _free = block->next;
+    _pooled_bytes -= _slab_size;
+    _hits++;
+  } else {
+    block = reinterpret_cast<Block*>(malloc(sizeof(Block) + _slab_size));
+    _misses++;
+    if (!block) {
+      // libuv reports UV_ENOBUFS to the read callback
+      buf->base = NULL;
+      buf->len = 0;
+      return;
+    }
+    block->capacity = static_cast<uint32_t>(_slab_size);
+  }
+  block->next = NULL;
+  block->pooled = pooled ? 1 : 0;
+  if (pooled) {
+    *outstanding += _slab_size;
+  }
+  buf->base = reinterpret_cast<char*>(block) + sizeof(Block);
+  buf->len = (ULONG) block->capacity;
+}
+
+void BufferPool::release(char* base, size_t* outstanding) {
+  if (!base) {
+    return;
+  }
+  Block* block = block_of(base);
+  if (block->pooled) {
+    assert(outstanding);
+    assert(*outstanding >= block->capacity);
+    *outstanding -= block->capacity;
+  }
+  if (block->capacity == _slab_size && _pooled_bytes + _slab_size <= _max_pooled_bytes) {
+    block->next = _free;
+    _free = block;
+    _pooled_bytes += _slab_size;
+  } else {
+    free(block);
+  }
+}
+
+void BufferPool::detach(char* base, size_t* outstanding) {
+  assert(outstanding);
+  assert(base);
+  Block* block = block_of(base);
+  if (block->pooled) {
+    assert(*outstanding >= block->capacity);
+    *outstanding -= block->capacity;
+    block->pooled = 0;
+  }
+}
+
+char* BufferPool::allocate(size_t size) {
+  Block* block = NULL;
+  // a slab is only worth pinning for a request of a good part of its size,
+  // smaller ones get exactly what they asked for and are freed on release
+  bool slab = size <= _slab_size && size >= _slab_size / SLAB_FRACTION;
+  if (slab && _free) {
+    block = _free;
+    _free = block->next;
+    _pooled_bytes -= _slab_size;
+    _hits++;
+  } else {
+    size_t capacity = slab ? _slab_size : size;
+    block = reinterpret_cast<Block*>(malloc(sizeof(Block) + capacity));
+    _misses++;
+    if (!block) {
+      return NULL;
+    }
+    block->capacity = static_cast<uint32_t>(capacity);
+  }
+  block->next = NULL;
+  block->pooled = 0;
+  return reinterpret_cast<char*>(block) + sizeof(Block);
+}
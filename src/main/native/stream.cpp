@@ -30,13 +30,10 @@
 #include "uv.h"
 #include "libuv-java/private/exception.h"
 #include "libuv-java/private/context.h"
+#include "libuv-java/private/pool.h"
 #include "libuv-java/private/stream.h"
 #include "libuv-java/jni/com_oracle_libuv_StreamHandle.h"
 
-#ifndef ULONG
-#define ULONG unsigned long
-#endif
-
 jstring StreamCallbacks::_IPV4 = NULL;
 jstring StreamCallbacks::_IPV6 = NULL;
 
@@ -45,6 +42,10 @@ jclass StreamCallbacks::_stream_handle_cid = NULL;
 
 jmethodID StreamCallbacks::_address_init_mid = NULL;
 jmethodID StreamCallbacks::_call_read_callback_mid = NULL;
+jmethodID StreamCallbacks::_call_read_lease_callback_mid = NULL;
+jmethodID StreamCallbacks::_call_read_provided_callback_mid = NULL;
+jmethodID StreamCallbacks::_call_read_no_buffer_callback_mid = NULL;
+jmethodID StreamCallbacks::_call_alloc_callback_mid = NULL;
 jmethodID StreamCallbacks::_call_write_callback_mid = NULL;
 jmethodID StreamCallbacks::_call_connect_callback_mid = NULL;
 jmethodID StreamCallbacks::_call_connection_callback_mid = NULL;
@@ -58,10 +59,22 @@ void StreamCallbacks::static_initialize(JNIEnv* env, jclass cls) {
   _call_read_callback_mid = env->GetMethodID(_stream_handle_cid, "callRead", "(Ljava/nio/ByteBuffer;)V");
   assert(_call_read_callback_mid);
 
-  _call_write_callback_mid = env->GetMethodID(_stream_handle_cid, "callWrite", "(ILjava/lang/Exception;Ljava/lang/Object;)V");
+  _call_read_lease_callback_mid = env->GetMethodID(_stream_handle_cid, "callReadLease", "(Ljava/nio/ByteBuffer;J)V");
+  assert(_call_read_lease_callback_mid);
+
+  _call_read_provided_callback_mid = env->GetMethodID(_stream_handle_cid, "callReadProvided", "(I)V");
+  assert(_call_read_provided_callback_mid);
+
+  _call_read_no_buffer_callback_mid = env->GetMethodID(_stream_handle_cid, "callReadNoBuffer", "()V");
+  assert(_call_read_no_buffer_callback_mid);
+
+  _call_alloc_callback_mid = env->GetMethodID(_stream_handle_cid, "callAlloc", "(I)Ljava/nio/ByteBuffer;");
+  assert(_call_alloc_callback_mid);
+
+  _call_write_callback_mid = env->GetMethodID(_stream_handle_cid, "callWrite", "(ILjava/lang/Exception;IJ)V");
   assert(_call_write_callback_mid);
 
-  _call_connect_callback_mid = env->GetMethodID(_stream_handle_cid, "callConnect", "(ILjava/lang/Exception;Ljava/lang/Object;)V");
+  _call_connect_callback_mid = env->GetMethodID(_stream_handle_cid, "callConnect", "(ILjava/lang/Exception;I)V");
   assert(_call_connect_callback_mid);
 
   _call_connection_callback_mid = env->GetMethodID(_stream_handle_cid, "callConnection", "(ILjava/lang/Exception;)V");
@@ -70,7 +83,7 @@ void StreamCallbacks::static_initialize(JNIEnv* env, jclass cls) {
   _call_close_callback_mid = env->GetMethodID(_stream_handle_cid, "callClose", "()V");
   assert(_call_close_callback_mid);
 
-  _call_shutdown_callback_mid = env->GetMethodID(_stream_handle_cid, "callShutdown", "(ILjava/lang/Exception;Ljava/lang/Object;)V");
+  _call_shutdown_callback_mid = env->GetMethodID(_stream_handle_cid, "callShutdown", "(ILjava/lang/Exception;I)V");
   assert(_call_shutdown_callback_mid);
 
   static_initialize_address(env);
@@ -109,6 +122,11 @@ void StreamCallbacks::initialize(JNIEnv *env, jobject instance) {
 
 StreamCallbacks::StreamCallbacks() {
   _env = NULL;
+  _pooled_bytes = 0;
+  _lease_reads = false;
+  _provided_reads = false;
+  _batch = NULL;
+  _batch_id = -1;
 }
 
 StreamCallbacks::~StreamCallbacks() {
@@ -120,8 +138,98 @@ void StreamCallbacks::throw_exception(int code, const char* syscall) {
   ThrowException(_env, code, syscall);
 }
 
-void StreamCallbacks::on_read(const uv_buf_t* buf, jsize nread) {
+void StreamCallbacks::on_alloc(BufferPool* pool, size_t suggested_size, uv_buf_t* buf) {
+  assert(pool);
+  if (_provided_reads) {
+    assert(_env);
+    // an empty buffer makes libuv report UV_ENOBUFS, _read_cb then stops reading
+    buf->base = NULL;
+    buf->len = 0;
+    jobject buffer = _env->CallObjectMethod(
+        _instance,
+        _call_alloc_callback_mid,
+        static_cast<jint>(suggested_size));
+    if (buffer) {
+      // the buffer is kept reachable by the handle until on_read
+      char* base = reinterpret_cast<char*>(_env->GetDirectBufferAddress(buffer));
+      jlong capacity = _env->GetDirectBufferCapacity(buffer);
+      if (base && capacity > 0) {
+        buf->base = base;
+        buf->len = static_cast<size_t>(capacity);
+      }
+      _env->DeleteLocalRef(buffer);
+    }
+    return;
+  }
+  if (_batch && !_lease_reads && _batch->alloc(buf)) {
+    return;
+  }
+  pool->acquire(buf, &_pooled_bytes);
+}
+
+void StreamCallbacks::on_read(BufferPool* pool, const uv_buf_t* buf, jsize nread) {
   assert(_env);
+  assert(pool);
+  if (_batch && _batch->owns(buf->base)) {
+    if (nread > 0) {
+      _batch->read(_batch_id, buf->base, static_cast<size_t>(nread));
+      return;
+    }
+    // the arena is reclaimed by the next dispatch, there is nothing to release
+    if (nread < 0) {
+      _batch->dispatch();
+      _env->CallVoidMethod(
+          _instance,
+          _call_read_callback_mid,
+          NULL);
+    }
+    return;
+  }
+  if (_batch && nread != 0) {
+    // reads that did not fit into the arena, eof and errors keep their order
+    _batch->dispatch();
+  }
+  if (_provided_reads) {
+    // the memory belongs to the application, nothing goes back to the pool
+    if (nread == UV_ENOBUFS) {
+      _env->CallVoidMethod(
+          _instance,
+          _call_read_no_buffer_callback_mid);
+    } else if (nread != 0) {
+      _env->CallVoidMethod(
+          _instance,
+          _call_read_provided_callback_mid,
+          nread);
+    }
+    return;
+  }
+  if (_lease_reads) {
+    if (nread > 0) {
+      jobject arg = _env->NewDirectByteBuffer(buf->base, nread);
+      if (!arg) {
+        pool->release(buf->base, &_pooled_bytes);
+      }
+      OOM(_env, arg);
+      // java owns the block until LeasedBuffer.release()
+      pool->detach(buf->base, &_pooled_bytes);
+      _env->CallVoidMethod(
+          _instance,
+          _call_read_lease_callback_mid,
+          arg,
+          reinterpret_cast<jlong>(buf->base));
+      _env->DeleteLocalRef(arg);
+      return;
+    }
+    if (nread < 0) {
+      _env->CallVoidMethod(
+          _instance,
+          _call_read_lease_callback_mid,
+          NULL,
+          (jlong) 0);
+    }
+    pool->release(buf->base, &_pooled_bytes);
+    return;
+  }
   if (nread < 0) {
     _env->CallVoidMethod(
         _instance,
@@ -129,6 +237,9 @@ void StreamCallbacks::on_read(const uv_buf_t* buf, jsize nread) {
         NULL);
   } else if (nread > 0) {
     jobject arg = _env->NewDirectByteBuffer(buf->base, nread);
+    if (!arg) {
+      pool->release(buf->base, &_pooled_bytes);
+    }
     OOM(_env, arg);
     _env->CallVoidMethod(
         _instance,
@@ -136,35 +247,47 @@ void StreamCallbacks::on_read(const uv_buf_t* buf, jsize nread) {
         arg);
     _env->DeleteLocalRef(arg);
   }
-  delete[] buf->base;
+  // the callback has returned, the block goes back to the loop's pool
+  pool->release(buf->base, &_pooled_bytes);
 }
 
-void StreamCallbacks::on_write(int status, int error_code, jobject buffer, jobject context) {
+void StreamCallbacks::on_write(int status, int error_code, jint slot, size_t queue_size) {
   assert(_env);
+  if (_batch) {
+    // failures carry an exception, which does not fit the ring
+    if (status == 0) {
+      _batch->write(_batch_id, slot);
+      return;
+    }
+    _batch->dispatch();
+  }
   jthrowable exception = error_code ? NewException(_env, error_code) : NULL;
   _env->CallVoidMethod(
       _instance,
       _call_write_callback_mid,
       status,
       exception,
-      context);
+      slot,
+      static_cast<jlong>(queue_size));
   if (exception) { _env->DeleteLocalRef(exception); }
 }
 
-void StreamCallbacks::on_connect(int status, int error_code, jobject context) {
+void StreamCallbacks::on_connect(int status, int error_code, jint slot) {
   assert(_env);
+  if (_batch) { _batch->dispatch(); }
   jthrowable exception = error_code ? NewException(_env, error_code) : NULL;
   _env->CallVoidMethod(
       _instance,
       _call_connect_callback_mid,
       status,
       exception,
-      context);
+      slot);
   if (exception) { _env->DeleteLocalRef(exception); }
 }
 
 void StreamCallbacks::on_connection(int status, int error_code) {
   assert(_env);
+  if (_batch) { _batch->dispatch(); }
   jthrowable exception = error_code ? NewException(_env, error_code) : NULL;
   _env->CallVoidMethod(
       _instance,
@@ -174,20 +297,22 @@ void StreamCallbacks::on_connection(int status, int error_code) {
   if (exception) { _env->DeleteLocalRef(exception); }
 }
 
-void StreamCallbacks::on_shutdown(int status, int error_code, jobject context) {
+void StreamCallbacks::on_shutdown(int status, int error_code, jint slot) {
   assert(_env);
+  if (_batch) { _batch->dispatch(); }
   jthrowable exception = error_code ? NewException(_env, error_code) : NULL;
   _env->CallVoidMethod(
       _instance,
       _call_shutdown_callback_mid,
       status,
       exception,
-      context);
+      slot);
   if (exception) { _env->DeleteLocalRef(exception); }
 }
 
 void StreamCallbacks::on_close() {
   assert(_env);
+  if (_batch) { _batch->dispatch(); }
   _env->CallVoidMethod(
       _instance,
       _call_close_callback_mid);
@@ -253,15 +378,21 @@ jobject StreamCallbacks::_address_info_to_js(JNIEnv* env, struct addrinfo* addr)
 }
 
 static void _alloc_cb(uv_handle_t* handle, size_t suggested_size, uv_buf_t* buf) {
-	buf->base = (char*)malloc(suggested_size);
-	buf->len = (ULONG)suggested_size;
+  StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(handle->data);
+  assert(cb);
+  cb->on_alloc(BufferPool::from(handle->loop), suggested_size, buf);
 }
 
 static void _read_cb(uv_stream_t* stream, ssize_t nread, const uv_buf_t* buf) {
   StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(stream->data);
   assert(cb);
   jsize size = static_cast<jsize>(nread);
-  cb->on_read(buf, size);
+  if (nread == UV_ENOBUFS && cb->provided_reads()) {
+    // the fd stays readable and libuv keeps polling it, without a stop the
+    // loop would spin on alloc and read until the application has buffers
+    uv_read_stop(stream);
+  }
+  cb->on_read(BufferPool::from(stream->loop), buf, size);
 }
 
 static void _shutdown_cb(uv_shutdown_t* req, int status) {
@@ -271,7 +402,7 @@ static void _shutdown_cb(uv_shutdown_t* req, int status) {
   assert(req->handle->data);
   StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(req->handle->data);
   ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
-  cb->on_shutdown(status, status < 0 ? status : 0, req_data->context());
+  cb->on_shutdown(status, status < 0 ? status : 0, req_data->slot());
   delete req_data;
   delete req;
 }
@@ -290,7 +421,8 @@ static void _write_cb(uv_write_t* req, int status) {
   assert(req->handle->data);
   StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(req->handle->data);
   ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
-  cb->on_write(status, status < 0 ? status : 0, req_data->data(), req_data->context());
+  // the completed request is no longer accounted in write_queue_size
+  cb->on_write(status, status < 0 ? status : 0, req_data->slot(), req->handle->write_queue_size);
   delete req;
   delete req_data;
 }
@@ -321,15 +453,50 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1read_1start
   assert(stream);
   uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
 
-  bool ipc_pipe = handle->type == UV_NAMED_PIPE && ((uv_pipe_t*)handle)->ipc;
-  if (!ipc_pipe) {
-    int r = uv_read_start(handle, _alloc_cb, _read_cb);
-    if (r) {
-      ThrowException(env, r, "uv_read_start");
-    }
+  // on ipc pipes received handles arrive with the data and are picked up
+  // from the read callback with PipeHandle.accept
+  int r = uv_read_start(handle, _alloc_cb, _read_cb);
+  if (r) {
+    ThrowException(env, r, "uv_read_start");
   }
 }
 
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1lease_1reads
+  (JNIEnv *env, jobject that, jlong stream, jboolean lease) {
+  assert(stream);
+  uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
+  assert(handle->data);
+  StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(handle->data);
+  cb->set_lease_reads(lease == JNI_TRUE);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1provide_1reads
+  (JNIEnv *env, jobject that, jlong stream, jboolean provided) {
+  assert(stream);
+  uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
+  assert(handle->data);
+  StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(handle->data);
+  cb->set_provided_reads(provided == JNI_TRUE);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1batch_1dispatch
+  (JNIEnv *env, jobject that, jlong stream, jlong batch, jint id) {
+  assert(stream);
+  assert(batch);
+  uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
+  assert(handle->data);
+  StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(handle->data);
+  cb->set_batch(reinterpret_cast<EventBatch*>(batch), id);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1release_1read_1buffer
+  (JNIEnv *env, jclass cls, jlong loop, jlong base) {
+  assert(loop);
+  assert(base);
+  uv_loop_t* lp = reinterpret_cast<uv_loop_t*>(loop);
+  BufferPool::from(lp)->release(reinterpret_cast<char*>(base), NULL);
+}
+
 JNIEXPORT void JNICALL Java_com_oracle_libuv_StreamHandle__1read_1stop
   (JNIEnv *env, jobject that, jlong stream) {
   assert(stream);
@@ -363,30 +530,41 @@ JNIEXPORT jboolean JNICALL Java_com_oracle_libuv_StreamHandle__1writable
 }
 
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1write
-  (JNIEnv *env, jobject that, jlong stream, jobject buffer, jbyteArray data, jint offset, jint length, jobject context) {
+  (JNIEnv *env, jobject that, jlong stream, jobject buffer, jbyteArray data, jint offset, jint length, jint slot) {
   assert(stream);
 
   int r;
   uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
-  uv_write_t* req = new uv_write_t();
-  req->handle = handle;
   ContextHolder* req_data = NULL;
+  uv_write_t* req = NULL;
   if (data) {
-    jbyte* base = (jbyte*) env->GetPrimitiveArrayCritical(data, NULL);
-    OOME(env, base);
-    uv_buf_t buf;
-    buf.base = reinterpret_cast<char*>(base + offset);
-    buf.len = length;
-    req_data = new ContextHolder(env, context);
+    // a queued write outlives this call and the gc may move the array, so
+    // its bytes are copied into native memory owned by the request
+    BufferPool* pool = BufferPool::from(handle->loop);
+    char* storage = pool->allocate(static_cast<size_t>(length));
+    OOME(env, storage);
+    env->GetByteArrayRegion(data, offset, length, reinterpret_cast<jbyte*>(storage));
+    if (env->ExceptionCheck()) {
+      pool->release(storage, NULL);
+      return -1;
+    }
+    uv_buf_t buf = uv_buf_init(storage, length);
+    req = new uv_write_t();
+    req->handle = handle;
+    req_data = new ContextHolder(slot);
+    req_data->set_storage(storage, pool);
     req->data = req_data;
     r = uv_write(req, handle, &buf, 1, _write_cb);
-    env->ReleasePrimitiveArrayCritical(data, base, 0);
   } else {
+    req = new uv_write_t();
+    req->handle = handle;
     jbyte* base = (jbyte*) env->GetDirectBufferAddress(buffer);
     uv_buf_t buf;
     buf.base = reinterpret_cast<char*>(base + offset);
     buf.len = length;
-    req->data = new ContextHolder(env, buffer, context);
+    // the request table keeps the buffer reachable until _write_cb
+    req_data = new ContextHolder(slot);
+    req->data = req_data;
     r = uv_write(req, handle, &buf, 1, _write_cb);
   }
   if (r) {
@@ -397,37 +575,103 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1write
   return r;
 }
 
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1try_1write
+  (JNIEnv *env, jobject that, jlong stream, jobject buffer, jbyteArray data, jint offset, jint length) {
+  assert(stream);
+
+  int r;
+  uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
+  if (data) {
+    // uv_try_write is synchronous, the array only has to stay put for the call
+    jbyte* base = (jbyte*) env->GetPrimitiveArrayCritical(data, NULL);
+    OOME(env, base);
+    uv_buf_t buf = uv_buf_init(reinterpret_cast<char*>(base + offset), length);
+    r = uv_try_write(handle, &buf, 1);
+    env->ReleasePrimitiveArrayCritical(data, base, JNI_ABORT);
+  } else {
+    jbyte* base = (jbyte*) env->GetDirectBufferAddress(buffer);
+    uv_buf_t buf = uv_buf_init(reinterpret_cast<char*>(base + offset), length);
+    r = uv_try_write(handle, &buf, 1);
+  }
+  // nothing could be written right now, or the stream does not support it
+  if (r == UV_EAGAIN || r == UV_ENOSYS) {
+    return 0;
+  }
+  if (r < 0) {
+    ThrowException(env, r, "uv_try_write");
+  }
+  return r;
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1writev
-  (JNIEnv *env, jobject that, jlong stream, jobjectArray buffers, jint bufcount, jobject context) {
+  (JNIEnv *env, jobject that, jlong stream, jobjectArray buffers, jobjectArray arrays, jintArray offsets, jintArray lengths, jint bufcount, jint slot) {
   assert(stream);
   assert(buffers);
+  assert(arrays);
   assert(bufcount > 0);
   assert(bufcount == env->GetArrayLength(buffers));
 
-  int r;
+  jint* offs = env->GetIntArrayElements(offsets, NULL);
+  OOME(env, offs);
+  jint* lens = env->GetIntArrayElements(lengths, NULL);
+  if (!lens) {
+    env->ReleaseIntArrayElements(offsets, offs, JNI_ABORT);
+  }
+  OOME(env, lens);
+
+  // heap arrays may move once this call returns, their bytes are copied into
+  // one native block that lives as long as the request
+  size_t heap_bytes = 0;
+  for (int i=0; i < bufcount; i++) {
+    jobject array = env->GetObjectArrayElement(arrays, i);
+    if (array) {
+      heap_bytes += static_cast<size_t>(lens[i]);
+      env->DeleteLocalRef(array);
+    }
+  }
   uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
-  uv_write_t* req = new uv_write_t();
-  req->handle = handle;
-  ContextHolder* req_data = NULL;
-  jobject* elements = new jobject[bufcount];
-  jbyte** bases = new jbyte*[bufcount];
+  BufferPool* pool = BufferPool::from(handle->loop);
+  char* storage = NULL;
+  if (heap_bytes > 0) {
+    storage = pool->allocate(heap_bytes);
+    if (!storage) {
+      env->ReleaseIntArrayElements(offsets, offs, JNI_ABORT);
+      env->ReleaseIntArrayElements(lengths, lens, JNI_ABORT);
+    }
+    OOME(env, storage);
+  }
+
   uv_buf_t* bufs = new uv_buf_t[bufcount];
+  size_t copied = 0;
   for (int i=0; i < bufcount; i++) {
-    jbyteArray data = (jbyteArray) env->GetObjectArrayElement(buffers, i);
-    jbyte* base = (jbyte*) env->GetByteArrayElements(data, NULL);
-    OOME(env, base);
-    elements[i] = (jobject) data;
-    bases[i] = base;
-    bufs[i].base = reinterpret_cast<char*>(base);
-    bufs[i].len = env->GetArrayLength(data);
+    jbyteArray array = (jbyteArray) env->GetObjectArrayElement(arrays, i);
+    if (array) {
+      char* base = storage + copied;
+      env->GetByteArrayRegion(array, offs[i], lens[i], reinterpret_cast<jbyte*>(base));
+      bufs[i] = uv_buf_init(base, lens[i]);
+      copied += static_cast<size_t>(lens[i]);
+      env->DeleteLocalRef(array);
+    } else {
+      jobject buffer = env->GetObjectArrayElement(buffers, i);
+      char* base = reinterpret_cast<char*>(env->GetDirectBufferAddress(buffer));
+      assert(base);
+      bufs[i] = uv_buf_init(base + offs[i], lens[i]);
+      env->DeleteLocalRef(buffer);
+    }
+  }
+  env->ReleaseIntArrayElements(offsets, offs, JNI_ABORT);
+  env->ReleaseIntArrayElements(lengths, lens, JNI_ABORT);
+
+  uv_write_t* req = new uv_write_t();
+  req->handle = handle;
+  // the request table keeps the direct buffers reachable until _write_cb
+  ContextHolder* req_data = new ContextHolder(slot);
+  if (storage) {
+    req_data->set_storage(storage, pool);
   }
-  req_data = new ContextHolder(env, buffers, context);
-  req_data->set_elements(buffers, elements, bases, bufcount); // ContextHolder destructor will release array elements
   req->data = req_data;
-  r = uv_write(req, handle, bufs, bufcount, _write_cb);
-  delete bufs;
-  delete bases;
-  delete elements;
+  int r = uv_write(req, handle, bufs, bufcount, _write_cb);
+  delete[] bufs;
   if (r) {
     delete req_data;
     delete req;
@@ -444,11 +688,11 @@ JNIEXPORT jlong JNICALL Java_com_oracle_libuv_StreamHandle__1write_1queue_1size
 }
 
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_StreamHandle__1close_1write
-  (JNIEnv *env, jobject that, jlong stream, jobject context) {
+  (JNIEnv *env, jobject that, jlong stream, jint slot) {
   assert(stream);
   uv_stream_t* handle = reinterpret_cast<uv_stream_t*>(stream);
   uv_shutdown_t* req = new uv_shutdown_t();
-  ContextHolder* req_data = new ContextHolder(env, context);
+  ContextHolder* req_data = new ContextHolder(slot);
   req->data = req_data;
   req->handle = handle;
   int r = uv_shutdown(req, handle, _shutdown_cb);
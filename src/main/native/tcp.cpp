@@ -24,13 +24,47 @@
  */
 
 #include <assert.h>
+#include <errno.h>
+#ifndef _WIN32
+#include <sys/socket.h>
+#include <unistd.h>
+#endif
 
 #include "uv.h"
+#include "libuv-java/private/address.h"
 #include "libuv-java/private/exception.h"
 #include "libuv-java/private/stream.h"
 #include "libuv-java/private/context.h"
 #include "libuv-java/jni/com_oracle_libuv_TCPHandle.h"
 
+// libuv 1.42 has no UV_TCP_REUSEPORT, must match TcpFlags.UV_TCP_REUSEPORT
+#define TCP_REUSEPORT 2
+
+static int _reuse_port(uv_tcp_t* handle, int family) {
+#if defined(_WIN32) || !defined(SO_REUSEPORT)
+  return UV_ENOTSUP;
+#else
+  uv_os_fd_t fd;
+  if (uv_fileno(reinterpret_cast<uv_handle_t*>(handle), &fd)) {
+    // uv_tcp_init does not create the socket, it has to exist for setsockopt
+    fd = socket(family, SOCK_STREAM, 0);
+    if (fd < 0) {
+      return uv_translate_sys_error(errno);
+    }
+    int r = uv_tcp_open(handle, fd);
+    if (r) {
+      close(fd);
+      return r;
+    }
+  }
+  int on = 1;
+  if (setsockopt(fd, SOL_SOCKET, SO_REUSEPORT, &on, sizeof(on))) {
+    return uv_translate_sys_error(errno);
+  }
+  return 0;
+#endif
+}
+
 static void _tcp_connect_cb(uv_connect_t* req, int status) {
   assert(req);
   assert(req->data);
@@ -38,11 +72,40 @@ static void _tcp_connect_cb(uv_connect_t* req, int status) {
   assert(req->handle->data);
   StreamCallbacks* cb = reinterpret_cast<StreamCallbacks*>(req->handle->data);
   ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
-  cb->on_connect(status, status < 0 ? status : 0, req_data->context());
+  cb->on_connect(status, status < 0 ? status : 0, req_data->slot());
   delete req;
   delete req_data;
 }
 
+static int _bind(JNIEnv* env, uv_tcp_t* handle, const sockaddr* addr, jint flags, const char* host) {
+  int r = 0;
+  if (flags & TCP_REUSEPORT) {
+    r = _reuse_port(handle, addr->sa_family);
+    flags &= ~TCP_REUSEPORT;
+  }
+  if (r == 0) {
+    r = uv_tcp_bind(handle, addr, (unsigned int) flags);
+  }
+  if (r) {
+    ThrowException(env, r, "uv_tcp_bind", host);
+  }
+  return r;
+}
+
+static int _connect(JNIEnv* env, uv_tcp_t* handle, const sockaddr* addr, jint slot, const char* host) {
+  uv_connect_t* req = new uv_connect_t();
+  req->handle = reinterpret_cast<uv_stream_t*>(handle);
+  ContextHolder* req_data = new ContextHolder(slot);
+  req->data = req_data;
+  int r = uv_tcp_connect(req, handle, addr, _tcp_connect_cb);
+  if (r) {
+    delete req_data;
+    delete req;
+    ThrowException(env, r, "uv_tcp_connect", host);
+  }
+  return r;
+}
+
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_TCPHandle__1new
   (JNIEnv *env, jclass cls, jlong loop) {
   assert(loop);
@@ -72,16 +135,20 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1bind
 	  uv_ip4_addr(h, port, &addrv4);
   }
   const sockaddr* addr = (ipv6 == JNI_TRUE) ? (const struct sockaddr*) &addrv6 : (const struct sockaddr*) &addrv4;
-  int r = uv_tcp_bind(handle, addr, (unsigned int) flags);
-  if (r) {
-    ThrowException(env, r, "uv_tcp_bind", h);
-  }
+  int r = _bind(env, handle, addr, flags, h);
   env->ReleaseStringUTFChars(host, h);
   return r;
 }
 
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1bind_1address
+  (JNIEnv *env, jobject that, jlong tcp, jobject sockaddr, jint flags) {
+  assert(tcp);
+  uv_tcp_t* handle = reinterpret_cast<uv_tcp_t*>(tcp);
+  return _bind(env, handle, resolved_address(env, sockaddr), flags, NULL);
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1connect
-  (JNIEnv *env, jobject that, jlong tcp, jstring host, jint port, jobject context, jboolean ipv6) {
+  (JNIEnv *env, jobject that, jlong tcp, jstring host, jint port, jint slot, jboolean ipv6) {
   assert(tcp);
   uv_tcp_t* handle = reinterpret_cast<uv_tcp_t*>(tcp);
   const char* h = env->GetStringUTFChars(host, 0);
@@ -92,21 +159,19 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1connect
   } else {
 	  uv_ip4_addr(h, port, &addrv4);
   }
-  uv_connect_t* req = new uv_connect_t();
-  req->handle = reinterpret_cast<uv_stream_t*>(handle);
-  ContextHolder* req_data = new ContextHolder(env, context);
-  req->data = req_data;
   const sockaddr* addr = (ipv6 == JNI_TRUE) ? (const struct sockaddr*) &addrv6 : (const struct sockaddr*) &addrv4;
-  int r = uv_tcp_connect(req, handle, addr, _tcp_connect_cb);
-  if (r) {
-    delete req_data;
-    delete req;
-    ThrowException(env, r, "uv_tcp_connect", h);
-  }
+  int r = _connect(env, handle, addr, slot, h);
   env->ReleaseStringUTFChars(host, h);
   return r;
 }
 
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1connect_1address
+  (JNIEnv *env, jobject that, jlong tcp, jobject sockaddr, jint slot) {
+  assert(tcp);
+  uv_tcp_t* handle = reinterpret_cast<uv_tcp_t*>(tcp);
+  return _connect(env, handle, resolved_address(env, sockaddr), slot, NULL);
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1open
   (JNIEnv *env, jobject that, jlong tcp, jlong socket) {
   assert(tcp);
@@ -155,6 +220,24 @@ JNIEXPORT jobject JNICALL Java_com_oracle_libuv_TCPHandle__1peer_1name
   return StreamCallbacks::_address_to_js(env, addr);
 }
 
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1peer_1record
+  (JNIEnv *env, jobject that, jlong tcp, jobject peer) {
+  assert(tcp);
+  uv_tcp_t* handle = reinterpret_cast<uv_tcp_t*>(tcp);
+
+  struct sockaddr_storage address;
+  int addrlen = sizeof(address);
+  int r = uv_tcp_getpeername(handle,
+                             reinterpret_cast<sockaddr*>(&address),
+                             &addrlen);
+  if (r) {
+    ThrowException(env, r, "uv_tcp_getpeername");
+    return r;
+  }
+  write_peer(peer_record(env, peer), reinterpret_cast<const sockaddr*>(&address));
+  return r;
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_TCPHandle__1no_1delay
   (JNIEnv *env, jobject that, jlong tcp, jint enable) {
 
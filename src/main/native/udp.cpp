@@ -26,31 +26,28 @@
 #include <string.h>
 #include <assert.h>
 #include <stdlib.h>
+#include <errno.h>
+#include <vector>
+#if defined(__linux__)
+#include <sys/socket.h>
+#endif
 
 #include "uv.h"
+#include "libuv-java/private/address.h"
 #include "libuv-java/private/exception.h"
 #include "libuv-java/private/context.h"
+#include "libuv-java/private/pool.h"
 #include "libuv-java/private/stream.h"
 #include "libuv-java/private/udp.h"
 #include "libuv-java/jni/com_oracle_libuv_UDPHandle.h"
 
-#ifndef ULONG
-#define ULONG unsigned long
-#endif
-
-typedef void(*uv_alloc_cb)(uv_handle_t* handle,
-	size_t suggested_size,
-	uv_buf_t* buf);
-
-void _alloc_cb(uv_handle_t* handle, size_t suggested_size, uv_buf_t* buf) {
-  buf->base = (char*) malloc(suggested_size);
-  buf->len = (ULONG) suggested_size;
-}
-
 jclass UDPCallbacks::_udp_handle_cid = NULL;
 
 jmethodID UDPCallbacks::_recv_callback_mid = NULL;
+jmethodID UDPCallbacks::_recv_batch_callback_mid = NULL;
+jmethodID UDPCallbacks::_recv_peer_callback_mid = NULL;
 jmethodID UDPCallbacks::_send_callback_mid = NULL;
+jmethodID UDPCallbacks::_send_batch_callback_mid = NULL;
 jmethodID UDPCallbacks::_close_callback_mid = NULL;
 
 void UDPCallbacks::static_initialize(JNIEnv* env, jclass cls) {
@@ -59,8 +56,14 @@ void UDPCallbacks::static_initialize(JNIEnv* env, jclass cls) {
 
   _recv_callback_mid = env->GetMethodID(_udp_handle_cid, "callRecv", "(ILjava/nio/ByteBuffer;Lcom/oracle/libuv/Address;)V");
   assert(_recv_callback_mid);
-  _send_callback_mid = env->GetMethodID(_udp_handle_cid, "callSend", "(ILjava/lang/Exception;Ljava/lang/Object;)V");
+  _recv_batch_callback_mid = env->GetMethodID(_udp_handle_cid, "callRecvBatch", "(I)V");
+  assert(_recv_batch_callback_mid);
+  _recv_peer_callback_mid = env->GetMethodID(_udp_handle_cid, "callRecvPeer", "(ILjava/nio/ByteBuffer;)V");
+  assert(_recv_peer_callback_mid);
+  _send_callback_mid = env->GetMethodID(_udp_handle_cid, "callSend", "(ILjava/lang/Exception;I)V");
   assert(_send_callback_mid);
+  _send_batch_callback_mid = env->GetMethodID(_udp_handle_cid, "callSendBatch", "(ILjava/lang/Exception;I)V");
+  assert(_send_batch_callback_mid);
   _close_callback_mid = env->GetMethodID(_udp_handle_cid, "callClose", "()V");
   assert(_close_callback_mid);
 
@@ -77,33 +80,123 @@ void UDPCallbacks::initialize(JNIEnv *env, jobject instance) {
 
 UDPCallbacks::UDPCallbacks() {
   _env = NULL;
+  _pooled_bytes = 0;
+  _peer = NULL;
+  _batch_data = NULL;
+  _batch_size = 0;
+  _records = NULL;
+  _batch_capacity = 0;
+  _batch_count = 0;
+}
+
+void UDPCallbacks::set_recv_batch(char* data, size_t size, RecvRecord* records, int32_t capacity) {
+  assert(data);
+  assert(records);
+  assert(capacity > 0);
+  _batch_data = data;
+  _batch_size = size;
+  _records = records;
+  _batch_capacity = capacity;
+  _batch_count = 0;
 }
 
 UDPCallbacks::~UDPCallbacks() {
   _env->DeleteGlobalRef(_instance);
 }
 
-void UDPCallbacks::on_recv(ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags) {
-  if (nread == 0) return;
+void UDPCallbacks::on_alloc(BufferPool* pool, uv_buf_t* buf) {
+  assert(pool);
+  if (_batch_data) {
+    // recvmmsg splits the arena into one chunk per datagram
+    *buf = uv_buf_init(_batch_data, static_cast<unsigned int>(_batch_size));
+    return;
+  }
+  pool->acquire(buf, &_pooled_bytes);
+}
+
+void UDPCallbacks::on_recv(BufferPool* pool, ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags) {
+  assert(pool);
+  if (_batch_data) {
+    on_recv_batch(nread, buf, addr, flags);
+    return;
+  }
+  if (nread == 0) {
+    // nothing to read, the buffer still has to go back to the pool
+    pool->release(buf->base, &_pooled_bytes);
+    return;
+  }
   jobject buffer_arg = NULL;
   if (nread > 0) {
     buffer_arg = _env->NewDirectByteBuffer(buf->base, nread);
+    if (!buffer_arg) {
+      pool->release(buf->base, &_pooled_bytes);
+    }
     OOM(_env, buffer_arg);
   }
-  jobject rinfo_arg = addr ? StreamCallbacks::_address_to_js(_env, addr) : NULL;
-  _env->CallVoidMethod(
-      _instance,
-      _recv_callback_mid,
-      nread,
-      buffer_arg,
-      rinfo_arg);
+  jobject rinfo_arg = NULL;
+  if (_peer) {
+    // java looks the peer up in the address cache of the loop
+    write_peer(_peer, addr);
+    _env->CallVoidMethod(
+        _instance,
+        _recv_peer_callback_mid,
+        nread,
+        buffer_arg);
+  } else {
+    rinfo_arg = addr ? StreamCallbacks::_address_to_js(_env, addr) : NULL;
+    _env->CallVoidMethod(
+        _instance,
+        _recv_callback_mid,
+        nread,
+        buffer_arg,
+        rinfo_arg);
+  }
   if (buffer_arg) {
     _env->DeleteLocalRef(buffer_arg);
   }
-  delete[] buf->base;
+  if (rinfo_arg) {
+    _env->DeleteLocalRef(rinfo_arg);
+  }
+  pool->release(buf->base, &_pooled_bytes);
 }
 
-void UDPCallbacks::on_send(int status, int error_code, jobject buffer, jobject context) {
+void UDPCallbacks::on_recv_batch(ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags) {
+  if (nread < 0) {
+    flush_batch();
+    _env->CallVoidMethod(_instance, _recv_batch_callback_mid, static_cast<jint>(nread));
+    return;
+  }
+  if (nread == 0 && !addr) {
+    // nothing was read, or recvmmsg is done with the arena
+    if (flags & UV_UDP_MMSG_FREE) {
+      flush_batch();
+    }
+    return;
+  }
+  assert(buf->base >= _batch_data && buf->base + nread <= _batch_data + _batch_size);
+  assert(_batch_count < _batch_capacity);
+  RecvRecord* record = _records + _batch_count++;
+  record->offset = static_cast<int32_t>(buf->base - _batch_data);
+  record->length = static_cast<int32_t>(nread);
+  record->flags = static_cast<int32_t>(flags);
+  write_peer(&record->peer, addr);
+  // without recvmmsg every datagram comes alone and no free follows
+  if (!(flags & UV_UDP_MMSG_CHUNK) || _batch_count == _batch_capacity) {
+    flush_batch();
+  }
+}
+
+void UDPCallbacks::flush_batch() {
+  if (_batch_count == 0) {
+    return;
+  }
+  jint count = _batch_count;
+  // the records are reused as soon as java returns
+  _batch_count = 0;
+  _env->CallVoidMethod(_instance, _recv_batch_callback_mid, count);
+}
+
+void UDPCallbacks::on_send(int status, int error_code, jint slot) {
   assert(_env);
 
   jthrowable exception = error_code ? NewException(_env, error_code) : NULL;
@@ -112,7 +205,19 @@ void UDPCallbacks::on_send(int status, int error_code, jobject buffer, jobject c
       _send_callback_mid,
       status,
       exception,
-      context);
+      slot);
+}
+
+void UDPCallbacks::on_send_batch(int status, jint slot) {
+  assert(_env);
+
+  jthrowable exception = status < 0 ? NewException(_env, status) : NULL;
+  _env->CallVoidMethod(
+      _instance,
+      _send_batch_callback_mid,
+      status,
+      exception,
+      slot);
 }
 
 void UDPCallbacks::on_close() {
@@ -130,12 +235,19 @@ static void _close_cb(uv_handle_t* handle) {
   delete handle;
 }
 
+static void _alloc_cb(uv_handle_t* handle, size_t suggested_size, uv_buf_t* buf) {
+  assert(handle);
+  assert(handle->data);
+  UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(handle->data);
+  cb->on_alloc(BufferPool::from(handle->loop), buf);
+}
+
 static void _recv_cb(uv_udp_t* udp, ssize_t nread, const uv_buf_t* buf, const struct sockaddr* addr, unsigned flags) {
   assert(udp);
   uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
   assert(handle->data);
   UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(handle->data);
-  cb->on_recv(nread, buf, addr, flags);
+  cb->on_recv(BufferPool::from(handle->loop), nread, buf, addr, flags);
 }
 
 static void _send_cb(uv_udp_send_t* req, int status) {
@@ -144,19 +256,93 @@ static void _send_cb(uv_udp_send_t* req, int status) {
   assert(req->handle->data);
   UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(req->handle->data);
   ContextHolder* req_data = reinterpret_cast<ContextHolder*>(req->data);
-  cb->on_send(status, status < 0 ? status : 0, req_data->data(), req_data->context());
+  cb->on_send(status, status < 0 ? status : 0, req_data->slot());
   delete req_data;
   delete req;
 }
 
+// The datagrams of one UDPHandle.sendBatch call that were queued, completed
+// with a single upcall once the last one is done
+struct SendBatch {
+  ContextHolder* holder;
+  uv_udp_send_t* reqs;
+  int32_t pending;
+  // the first error, 0 if every datagram was sent
+  int status;
+};
+
+static void _send_batch_cb(uv_udp_send_t* req, int status) {
+  assert(req->handle);
+  assert(req->data);
+  assert(req->handle->data);
+  SendBatch* batch = reinterpret_cast<SendBatch*>(req->data);
+  if (status < 0 && batch->status == 0) {
+    batch->status = status;
+  }
+  if (--batch->pending > 0) {
+    return;
+  }
+  UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(req->handle->data);
+  cb->on_send_batch(batch->status, batch->holder->slot());
+  delete batch->holder;
+  delete[] batch->reqs;
+  delete batch;
+}
+
+#if defined(__linux__)
+// send as many datagrams as the socket takes without blocking, in as few
+// system calls as possible, and return how many were handled
+static int _send_mmsg(uv_os_fd_t fd, uv_buf_t* bufs, const sockaddr** addrs, int count, int* status) {
+  struct mmsghdr msgs[64];
+  const int width = static_cast<int>(sizeof(msgs) / sizeof(msgs[0]));
+  int i = 0;
+  while (i < count) {
+    int n = count - i < width ? count - i : width;
+    memset(msgs, 0, sizeof(msgs[0]) * n);
+    for (int j = 0; j < n; j++) {
+      struct msghdr* h = &msgs[j].msg_hdr;
+      const sockaddr* addr = addrs[i + j];
+      // a connected socket is sent to without a name
+      if (addr) {
+        h->msg_name = const_cast<sockaddr*>(addr);
+        h->msg_namelen = addr->sa_family == AF_INET6 ? sizeof(sockaddr_in6) : sizeof(sockaddr_in);
+      }
+      // uv_buf_t has the layout of struct iovec on unix
+      h->msg_iov = reinterpret_cast<struct iovec*>(&bufs[i + j]);
+      h->msg_iovlen = 1;
+    }
+    int r;
+    do {
+      r = sendmmsg(fd, msgs, n, 0);
+    } while (r == -1 && errno == EINTR);
+    if (r == -1) {
+      if (errno == EAGAIN || errno == EWOULDBLOCK || errno == ENOBUFS) {
+        // libuv queues the rest and waits for the socket to be writable
+        break;
+      }
+      // the first message of the call failed, the others are retried
+      if (*status == 0) {
+        *status = -errno;
+      }
+      i++;
+      continue;
+    }
+    i += r;
+  }
+  return i;
+}
+#endif
+
 JNIEXPORT jlong JNICALL Java_com_oracle_libuv_UDPHandle__1new
-  (JNIEnv *env, jclass cls, jlong loop) {
+  (JNIEnv *env, jclass cls, jlong loop, jint flags) {
   assert(loop);
   uv_loop_t* lp = reinterpret_cast<uv_loop_t*>(loop);
   uv_udp_t* udp = new uv_udp_t();
-  int r = uv_udp_init(lp, udp);
+  // AF_UNSPEC in the lower bits, the socket is created by bind
+  int r = uv_udp_init_ex(lp, udp, static_cast<unsigned int>(flags));
   if (r) {
-    ThrowException(env, r, "uv_udp_init");
+    delete udp;
+    ThrowException(env, r, "uv_udp_init_ex");
     return (jlong) NULL;
   }
   udp->data = new UDPCallbacks();
@@ -178,6 +364,38 @@ JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize
   cb->initialize(env, that);
 }
 
+JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize_1recv_1batch
+  (JNIEnv *env, jobject that, jlong udp, jobject data, jobject records, jint capacity) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  assert(handle->data);
+  UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(handle->data);
+  char* base = reinterpret_cast<char*>(env->GetDirectBufferAddress(data));
+  RecvRecord* ring = reinterpret_cast<RecvRecord*>(env->GetDirectBufferAddress(records));
+  assert(base);
+  assert(ring);
+  assert(env->GetDirectBufferCapacity(records) >= static_cast<jlong>(sizeof(RecvRecord) * capacity));
+  cb->set_recv_batch(base, static_cast<size_t>(env->GetDirectBufferCapacity(data)), ring, capacity);
+}
+
+JNIEXPORT void JNICALL Java_com_oracle_libuv_UDPHandle__1initialize_1peer
+  (JNIEnv *env, jobject that, jlong udp, jobject peer) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  assert(handle->data);
+  UDPCallbacks* cb = reinterpret_cast<UDPCallbacks*>(handle->data);
+  cb->set_peer(peer_record(env, peer));
+}
+
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1batch_1address
+  (JNIEnv *env, jclass cls, jobject records, jint index) {
+  RecvRecord* ring = reinterpret_cast<RecvRecord*>(env->GetDirectBufferAddress(records));
+  assert(ring);
+  struct sockaddr_storage address;
+  peer_to_sockaddr(&ring[index].peer, &address);
+  return StreamCallbacks::_address_to_js(env, reinterpret_cast<const sockaddr*>(&address));
+}
+
 JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1address
   (JNIEnv *env, jobject that, jlong udp) {
   assert(udp);
@@ -194,6 +412,39 @@ JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1address
   return StreamCallbacks::_address_to_js(env, addr);
 }
 
+JNIEXPORT jobject JNICALL Java_com_oracle_libuv_UDPHandle__1peer_1name
+  (JNIEnv *env, jobject that, jlong udp) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  struct sockaddr_storage address;
+  sockaddr* sock = reinterpret_cast<sockaddr*>(&address);
+  int addrlen = sizeof(address);
+  int r = uv_udp_getpeername(handle, sock, &addrlen);
+  if (r) {
+    ThrowException(env, r, "uv_udp_getpeername");
+    return NULL;
+  }
+  const sockaddr* addr = reinterpret_cast<const sockaddr*>(&address);
+  return StreamCallbacks::_address_to_js(env, addr);
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1peer_1record
+  (JNIEnv *env, jobject that, jlong udp, jobject peer) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  struct sockaddr_storage address;
+  int addrlen = sizeof(address);
+  int r = uv_udp_getpeername(handle,
+                             reinterpret_cast<sockaddr*>(&address),
+                             &addrlen);
+  if (r) {
+    ThrowException(env, r, "uv_udp_getpeername");
+    return r;
+  }
+  write_peer(peer_record(env, peer), reinterpret_cast<const sockaddr*>(&address));
+  return r;
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind
   (JNIEnv *env, jobject that, jlong udp, jint port, jstring host, jboolean ipv6, jint flags) {
   assert(udp);
@@ -215,51 +466,202 @@ JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind
   return r;
 }
 
-JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send
-  (JNIEnv *env, jobject that, jlong udp, jobject buffer, jbyteArray data, jint offset, jint length, jint port, jstring host, jobject context, jboolean ipv6) {
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1bind_1address
+  (JNIEnv *env, jobject that, jlong udp, jobject sockaddr, jint flags) {
   assert(udp);
   uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
-  const char* h = env->GetStringUTFChars(host, 0);
-  sockaddr_in addrv4;
-  sockaddr_in6 addrv6;
-  if (ipv6 == JNI_TRUE) {
-	  uv_ip6_addr(h, port, &addrv6);
-  } else {
-	  uv_ip4_addr(h, port, &addrv4);
+  int r = uv_udp_bind(handle, resolved_address(env, sockaddr), (unsigned int) flags);
+  if (r) {
+    ThrowException(env, r, "uv_udp_bind");
   }
-  const sockaddr* addr = (ipv6 == JNI_TRUE) ? (const struct sockaddr*) &addrv6 : (const struct sockaddr*) &addrv4;
+  return r;
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1connect
+  (JNIEnv *env, jobject that, jlong udp, jobject sockaddr) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  // without an address the handle is disconnected again
+  int r = uv_udp_connect(handle, sockaddr ? resolved_address(env, sockaddr) : NULL);
+  if (r) {
+    ThrowException(env, r, "uv_udp_connect");
+  }
+  return r;
+}
+
+static int _send(JNIEnv *env, uv_udp_t* handle, jobject buffer, jbyteArray data, jint offset, jint length, const sockaddr* addr, jint slot, const char* host) {
   uv_udp_send_t* req = new uv_udp_send_t();
   req->handle = handle;
   ContextHolder* req_data = NULL;
   int r;
   if (data) {
-    jbyte* base = (jbyte*) env->GetPrimitiveArrayCritical(data, NULL);
-    OOME(env, base);
-    uv_buf_t buf;
-    buf.base = reinterpret_cast<char*>(base + offset);
-    buf.len = length;
-    req_data = new ContextHolder(env, context);
+    // a queued send outlives this call and the gc may move the array, so
+    // its bytes are copied into native memory owned by the request
+    BufferPool* pool = BufferPool::from(handle->loop);
+    char* storage = pool->allocate(static_cast<size_t>(length));
+    if (!storage) {
+      delete req;
+    }
+    OOME(env, storage);
+    env->GetByteArrayRegion(data, offset, length, reinterpret_cast<jbyte*>(storage));
+    if (env->ExceptionCheck()) {
+      pool->release(storage, NULL);
+      delete req;
+      return -1;
+    }
+    uv_buf_t buf = uv_buf_init(storage, length);
+    req_data = new ContextHolder(slot);
+    req_data->set_storage(storage, pool);
     req->data = req_data;
     r = uv_udp_send(req, handle, &buf, 1, addr, _send_cb);
-    env->ReleasePrimitiveArrayCritical(data, base, 0);
   } else {
     jbyte* base = (jbyte*) env->GetDirectBufferAddress(buffer);
     uv_buf_t buf;
     buf.base = reinterpret_cast<char*>(base + offset);
     buf.len = length;
-    req_data = new ContextHolder(env, buffer, context);
+    // the request table keeps the buffer reachable until _send_cb
+    req_data = new ContextHolder(slot);
     req->data = req_data;
     r = uv_udp_send(req, handle, &buf, 1, addr, _send_cb);
   }
   if (r) {
     delete req_data;
     delete req;
-    ThrowException(env, r, "uv_udp_send", h);
+    ThrowException(env, r, "uv_udp_send", host);
+  }
+  return r;
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send
+  (JNIEnv *env, jobject that, jlong udp, jobject buffer, jbyteArray data, jint offset, jint length, jint port, jstring host, jint slot, jboolean ipv6) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  const char* h = env->GetStringUTFChars(host, 0);
+  sockaddr_in addrv4;
+  sockaddr_in6 addrv6;
+  if (ipv6 == JNI_TRUE) {
+	  uv_ip6_addr(h, port, &addrv6);
+  } else {
+	  uv_ip4_addr(h, port, &addrv4);
   }
+  const sockaddr* addr = (ipv6 == JNI_TRUE) ? (const struct sockaddr*) &addrv6 : (const struct sockaddr*) &addrv4;
+  int r = _send(env, handle, buffer, data, offset, length, addr, slot, h);
   env->ReleaseStringUTFChars(host, h);
   return r;
 }
 
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send_1address
+  (JNIEnv *env, jobject that, jlong udp, jobject buffer, jbyteArray data, jint offset, jint length, jobject sockaddr, jint slot) {
+  assert(udp);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  const struct sockaddr* addr = sockaddr ? resolved_address(env, sockaddr) : NULL;
+  return _send(env, handle, buffer, data, offset, length, addr, slot, NULL);
+}
+
+JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1send_1batch
+  (JNIEnv *env, jobject that, jlong udp, jobjectArray buffers, jobjectArray datas, jintArray offsets, jintArray lengths, jobjectArray sockaddrs, jint count, jint slot) {
+  assert(udp);
+  assert(count > 0);
+  uv_udp_t* handle = reinterpret_cast<uv_udp_t*>(udp);
+  BufferPool* pool = BufferPool::from(handle->loop);
+  std::vector<jint> offset(count);
+  std::vector<jint> length(count);
+  env->GetIntArrayRegion(offsets, 0, count, &offset[0]);
+  env->GetIntArrayRegion(lengths, 0, count, &length[0]);
+
+  // heap data of the whole batch is copied into a single native block
+  size_t heap_bytes = 0;
+  for (jint i = 0; i < count; i++) {
+    jobject data = env->GetObjectArrayElement(datas, i);
+    if (data) {
+      heap_bytes += static_cast<size_t>(length[i]);
+      env->DeleteLocalRef(data);
+    }
+  }
+  char* storage = NULL;
+  if (heap_bytes > 0) {
+    storage = pool->allocate(heap_bytes);
+    OOME(env, storage);
+  }
+
+  std::vector<uv_buf_t> bufs(count);
+  std::vector<const sockaddr*> addrs(count);
+  char* next = storage;
+  for (jint i = 0; i < count; i++) {
+    jbyteArray data = reinterpret_cast<jbyteArray>(env->GetObjectArrayElement(datas, i));
+    if (data) {
+      env->GetByteArrayRegion(data, offset[i], length[i], reinterpret_cast<jbyte*>(next));
+      env->DeleteLocalRef(data);
+      bufs[i] = uv_buf_init(next, length[i]);
+      next += length[i];
+    } else {
+      // the request table keeps the direct buffers reachable until the completion
+      jobject buffer = env->GetObjectArrayElement(buffers, i);
+      char* base = reinterpret_cast<char*>(env->GetDirectBufferAddress(buffer));
+      env->DeleteLocalRef(buffer);
+      bufs[i] = uv_buf_init(base + offset[i], length[i]);
+    }
+    if (sockaddrs) {
+      jobject address = env->GetObjectArrayElement(sockaddrs, i);
+      addrs[i] = resolved_address(env, address);
+      env->DeleteLocalRef(address);
+    } else {
+      addrs[i] = NULL;
+    }
+  }
+  if (env->ExceptionCheck()) {
+    pool->release(storage, NULL);
+    return -1;
+  }
+
+  int status = 0;
+  jint sent = 0;
+#if defined(__linux__)
+  // queued sends go first, only an idle socket can be written to directly
+  uv_os_fd_t fd;
+  if (uv_udp_get_send_queue_count(handle) == 0 &&
+      uv_fileno(reinterpret_cast<uv_handle_t*>(handle), &fd) == 0) {
+    sent = _send_mmsg(fd, &bufs[0], &addrs[0], count, &status);
+  }
+#endif
+
+  SendBatch* batch = NULL;
+  if (sent < count) {
+    batch = new SendBatch();
+    batch->reqs = new uv_udp_send_t[count - sent];
+    batch->pending = 0;
+    batch->status = status;
+    for (jint i = sent; i < count; i++) {
+      uv_udp_send_t* req = &batch->reqs[i - sent];
+      req->data = batch;
+      int r = uv_udp_send(req, handle, &bufs[i], 1, addrs[i], _send_batch_cb);
+      if (r) {
+        if (batch->status == 0) {
+          batch->status = r;
+        }
+      } else {
+        batch->pending++;
+      }
+    }
+    status = batch->status;
+    if (batch->pending == 0) {
+      delete[] batch->reqs;
+      delete batch;
+      batch = NULL;
+    }
+  }
+  if (batch) {
+    batch->holder = new ContextHolder(slot);
+    batch->holder->set_storage(storage, pool);
+    return 1;
+  }
+  pool->release(storage, NULL);
+  if (status < 0) {
+    ThrowException(env, status, "uv_udp_send");
+  }
+  return status;
+}
+
 JNIEXPORT jint JNICALL Java_com_oracle_libuv_UDPHandle__1recv_1start
   (JNIEnv *env, jobject that, jlong udp) {
   assert(udp);
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddressCacheTest {
+
+    @Test
+    public void testLookup() {
+        final AddressCache cache = new AddressCache(100);
+        Assert.assertNull(cache.lookup());
+
+        write(cache.peer(), 4, 1234, new byte[] { 127, 0, 0, 1 });
+        final Address first = cache.lookup();
+        Assert.assertEquals("127.0.0.1", first.getIp());
+        Assert.assertEquals(1234, first.getPort());
+        Assert.assertEquals("IPv4", first.getFamily());
+        Assert.assertSame(first, cache.lookup());
+
+        write(cache.peer(), 4, 1235, new byte[] { 127, 0, 0, 1 });
+        Assert.assertTrue(first != cache.lookup());
+        Assert.assertEquals(1235, cache.lookup().getPort());
+        Assert.assertEquals(2, cache.misses());
+        Assert.assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("10.1.200.255", format(4, 10, 1, 200, 255));
+        Assert.assertEquals("::", format(6));
+        Assert.assertEquals("::1", format(6, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1));
+        Assert.assertEquals("1::", format(6, 0, 1));
+        Assert.assertEquals("2001:db8::1", format(6, 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1));
+        // the first of two equally long runs is compressed
+        Assert.assertEquals("2001:db8::1:0:0:1", format(6, 0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 1));
+        // a single zero word is not compressed
+        Assert.assertEquals("1:0:1:1:1:1:1:1", format(6, 0, 1, 0, 0, 0, 1, 0, 1, 0, 1, 0, 1, 0, 1, 0, 1));
+        Assert.assertEquals("::ffff:192.168.0.1", format(6, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0xff, 0xff, 192, 168, 0, 1));
+        Assert.assertEquals("::192.168.0.1", format(6, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 192, 168, 0, 1));
+        Assert.assertEquals("fe80::abcd:ef01", format(6, 0xfe, 0x80, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0xab, 0xcd, 0xef, 0x01));
+    }
+
+    private static String format(final int family, final int... address) {
+        final AddressCache cache = new AddressCache(1);
+        final byte[] bytes = new byte[16];
+        for (int i = 0; i < address.length; i++) {
+            bytes[i] = (byte) address[i];
+        }
+        write(cache.peer(), family, 80, bytes);
+        return cache.lookup().getIp();
+    }
+
+    private static void write(final ByteBuffer peer, final int family, final int port, final byte[] address) {
+        peer.putShort(0, (short) family);
+        peer.putShort(2, (short) port);
+        for (int i = 0; i < 16; i++) {
+            peer.put(4 + i, i < address.length ? address[i] : 0);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockingStreamTest extends TestBase {
+
+    private static final String ADDRESS = "127.0.0.1";
+
+    private static final int PORT = 45690;
+
+    @Test
+    public void testEcho() throws Throwable {
+        // more than the stream buffers, so both sides have to wait
+        final byte[] payload = new byte[1024 * 1024];
+        new Random(7).nextBytes(payload);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicReference<LoopExecutor> executor = new AtomicReference<>();
+        final AtomicReference<TCPHandle> server = new AtomicReference<>();
+        final Object listening = new Object();
+
+        final Thread loopThread = new Thread(() -> {
+            try {
+                final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+                final LoopHandle loop = handleFactory.getLoopHandle();
+                final LoopExecutor tasks = handleFactory.newLoopExecutor(LoopExecutor.DEFAULT_BATCH_SIZE);
+                final TCPHandle listener = handleFactory.newTCPHandle();
+                listener.setConnectionCallback((status, error) -> {
+                    final TCPHandle peer = handleFactory.newTCPHandle();
+                    listener.accept(peer);
+                    final BlockingStream stream = new BlockingStream(peer, tasks, 16 * 1024);
+                    // straight-line echo on a thread of its own
+                    final Thread handler = new Thread(() -> {
+                        try (InputStream in = stream.getInputStream()) {
+                            final OutputStream out = stream.getOutputStream();
+                            final byte[] buffer = new byte[4096];
+                            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                                out.write(buffer, 0, n);
+                            }
+                            out.close();
+                        } catch (final Throwable ex) {
+                            failure.compareAndSet(null, ex);
+                        }
+                    });
+                    handler.start();
+                });
+                listener.bind(ADDRESS, PORT, false);
+                listener.listen(1);
+                synchronized (listening) {
+                    server.set(listener);
+                    executor.set(tasks);
+                    listening.notifyAll();
+                }
+                loop.run();
+            } catch (final Throwable ex) {
+                failure.compareAndSet(null, ex);
+                synchronized (listening) {
+                    listening.notifyAll();
+                }
+            }
+        });
+        loopThread.start();
+        synchronized (listening) {
+            while (executor.get() == null && failure.get() == null) {
+                listening.wait();
+            }
+        }
+        Assert.assertNull(failure.get());
+
+        final ByteArrayOutputStream echoed = new ByteArrayOutputStream();
+        try (Socket socket = new Socket(ADDRESS, PORT)) {
+            final Thread writer = new Thread(() -> {
+                try {
+                    socket.getOutputStream().write(payload);
+                    socket.shutdownOutput();
+                } catch (final Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            });
+            writer.start();
+            final InputStream in = socket.getInputStream();
+            final byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                echoed.write(buffer, 0, n);
+            }
+            writer.join();
+        }
+
+        executor.get().execute(() -> {
+            server.get().close();
+            executor.get().shutdownNow();
+            server.get().loop.closeAll();
+        });
+        loopThread.join(TIMEOUT);
+
+        Assert.assertNull(failure.get());
+        Assert.assertArrayEquals(payload, echoed.toByteArray());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopExecutorTest extends TestBase {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int TASKS = 100000;
+
+    @Test
+    public void testProducers() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final LoopExecutor executor = handleFactory.newLoopExecutor(64);
+        final Thread loopThread = Thread.currentThread();
+        final int[] perProducer = new int[PRODUCERS];
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final AtomicInteger wrongThread = new AtomicInteger();
+
+        final Thread[] producers = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            final int producer = i;
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < TASKS; j++) {
+                    final int seq = j;
+                    executor.execute(() -> {
+                        if (Thread.currentThread() != loopThread) {
+                            wrongThread.incrementAndGet();
+                        }
+                        // tasks of one producer run in submission order
+                        if (perProducer[producer]++ != seq) {
+                            outOfOrder.incrementAndGet();
+                        }
+                    });
+                }
+            });
+            producers[i].start();
+        }
+        // closes the executor once every producer is done
+        final Thread closer = new Thread(() -> {
+            try {
+                for (final Thread producer : producers) {
+                    producer.join();
+                }
+            } catch (final InterruptedException ex) {
+                return;
+            }
+            executor.execute(() -> Assert.assertTrue(executor.shutdownNow().isEmpty()));
+        });
+        closer.start();
+
+        loop.run();
+        closer.join();
+
+        for (int i = 0; i < PRODUCERS; i++) {
+            Assert.assertEquals(TASKS, perProducer[i]);
+        }
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertEquals(0, wrongThread.get());
+
+        final LoopExecutorStats stats = executor.getStats();
+        Assert.assertEquals(PRODUCERS * TASKS + 1, stats.getExecuted());
+        Assert.assertEquals(0, stats.getPending());
+        Assert.assertTrue(stats.getLargestBatch() <= 64);
+        Assert.assertTrue(stats.getWakeups() < stats.getExecuted());
+    }
+
+    @Test
+    public void testShutdown() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final LoopExecutor executor = handleFactory.newLoopExecutor(LoopExecutor.DEFAULT_BATCH_SIZE);
+        final AtomicInteger ran = new AtomicInteger();
+
+        executor.execute(ran::incrementAndGet);
+        executor.execute(ran::incrementAndGet);
+        final List<Runnable> pending = executor.shutdownNow();
+        Assert.assertEquals(2, pending.size());
+        Assert.assertTrue(executor.isShutdown());
+
+        try {
+            executor.execute(ran::incrementAndGet);
+            Assert.fail("accepted a task after shutdown");
+        } catch (final RejectedExecutionException ex) {
+            // expected
+        }
+
+        loop.run();
+        Assert.assertEquals(0, ran.get());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class LoopGroupTest extends TestBase {
+
+    private static final String ADDRESS = "127.0.0.1";
+
+    private static final int PORT = 45678;
+
+    @Test
+    public void testReusePortListeners() throws Throwable {
+        // SO_REUSEPORT is not available on windows
+        Assume.assumeFalse(IS_WINDOWS);
+        final int clients = 32;
+        final AtomicInteger served = new AtomicInteger();
+        final LoopGroup group = new LoopGroup(2);
+        group.start();
+        try {
+            group.listen(ADDRESS, PORT, false, 128, (factory, listener) -> {
+                final TCPHandle peer = factory.newTCPHandle();
+                listener.accept(peer);
+                peer.setReadCallback(data -> {
+                    if (data == null) {
+                        served.incrementAndGet();
+                        peer.close();
+                    }
+                });
+                peer.readStart();
+            });
+
+            final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+            final LoopHandle loop = handleFactory.getLoopHandle();
+            for (int i = 0; i < clients; i++) {
+                final TCPHandle client = handleFactory.newTCPHandle();
+                client.setConnectCallback((status, error) -> client.closeWrite());
+                client.setShutdownCallback((status, error) -> client.close());
+                client.connect(ADDRESS, PORT, false);
+            }
+            loop.run();
+
+            final long start = System.currentTimeMillis();
+            while (served.get() < clients) {
+                if (System.currentTimeMillis() - start > TIMEOUT) {
+                    Assert.fail("timeout");
+                }
+                Thread.sleep(10);
+            }
+            long connections = 0;
+            for (int i = 0; i < group.size(); i++) {
+                connections += group.getConnections(i);
+                Assert.assertNotNull(group.getBufferPoolStats(i));
+            }
+            Assert.assertEquals(clients, connections);
+
+            group.shutdown();
+            Assert.assertTrue(group.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        } finally {
+            group.close();
+        }
+    }
+
+    @Test
+    public void testRoundRobinDispatch() throws Throwable {
+        // ipc pipes between loops of a process are not available on windows
+        Assume.assumeFalse(IS_WINDOWS);
+        final long[] connections = dispatch(LoopGroup.DispatchPolicy.ROUND_ROBIN, PORT + 1);
+        for (final long count : connections) {
+            Assert.assertEquals(8, count);
+        }
+    }
+
+    @Test
+    public void testLeastConnectionsDispatch() throws Throwable {
+        Assume.assumeFalse(IS_WINDOWS);
+        long total = 0;
+        for (final long count : dispatch(LoopGroup.DispatchPolicy.LEAST_CONNECTIONS, PORT + 2)) {
+            Assert.assertTrue(count > 0);
+            total += count;
+        }
+        Assert.assertEquals(32, total);
+    }
+
+    private long[] dispatch(final LoopGroup.DispatchPolicy policy, final int port) throws Throwable {
+        final int clients = 32;
+        final AtomicInteger served = new AtomicInteger();
+        final LoopGroup group = new LoopGroup(4);
+        group.start();
+        try {
+            group.listen(ADDRESS, port, false, 128, policy, (factory, connection) -> {
+                connection.setReadCallback(data -> {
+                    if (data == null) {
+                        served.incrementAndGet();
+                        connection.close();
+                    }
+                });
+                connection.readStart();
+            });
+
+            final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+            final LoopHandle loop = handleFactory.getLoopHandle();
+            for (int i = 0; i < clients; i++) {
+                final TCPHandle client = handleFactory.newTCPHandle();
+                client.setConnectCallback((status, error) -> client.closeWrite());
+                client.setShutdownCallback((status, error) -> client.close());
+                client.connect(ADDRESS, port, false);
+            }
+            loop.run();
+
+            final long start = System.currentTimeMillis();
+            while (served.get() < clients) {
+                if (System.currentTimeMillis() - start > TIMEOUT) {
+                    Assert.fail("timeout");
+                }
+                Thread.sleep(10);
+            }
+            group.shutdown();
+            Assert.assertTrue(group.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            final long[] connections = new long[group.size()];
+            for (int i = 0; i < group.size(); i++) {
+                connections[i] = group.getConnections(i);
+                Assert.assertEquals(0, group.getOpenConnections(i));
+            }
+            return connections;
+        } finally {
+            group.close();
+        }
+    }
+}
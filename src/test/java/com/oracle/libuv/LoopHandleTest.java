@@ -72,4 +72,112 @@ public class LoopHandleTest extends TestBase {
         }
         Assert.assertTrue(pointers.isEmpty());
     }
+
+    @Test
+    public void testCachedClock() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TimerHandle timer = handleFactory.newTimerHandle();
+
+        // TimerHandle.now refreshes the cached time
+        final long now = TimerHandle.now(loop);
+        Assert.assertEquals(now, loop.now());
+        Thread.sleep(10);
+        Assert.assertEquals(now, loop.now());
+        loop.updateTime();
+        Assert.assertTrue(loop.now() >= now + 10);
+
+        // the loop refreshes it on every iteration
+        final long[] fired = new long[1];
+        timer.setTimerFiredCallback(status -> {
+            fired[0] = loop.now();
+            timer.close();
+        });
+        timer.start(20, 0);
+        loop.run();
+        Assert.assertTrue(fired[0] >= now + 30);
+
+        final long hrtime = LoopHandle.hrtime();
+        Thread.sleep(1);
+        Assert.assertTrue(LoopHandle.hrtime() - hrtime >= 1000000);
+    }
+
+    @Test
+    public void testMetrics() throws Throwable {
+        try {
+            new LoopHandle().getMetrics(new LoopMetrics());
+            Assert.fail("metrics are disabled by default");
+        } catch (final IllegalStateException expected) {
+        }
+
+        final LibUVConfiguration configuration = LibUVConfiguration.builder().loopMetricsInterval(10L).build();
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle(configuration));
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TimerHandle timer = handleFactory.newTimerHandle();
+        final AsyncHandle async = handleFactory.newAsyncHandle();
+        async.unref();
+
+        final int[] fired = new int[1];
+        timer.setTimerFiredCallback(status -> {
+            if (++fired[0] == 1) {
+                throw new RuntimeException("expected");
+            }
+            if (fired[0] == 8) {
+                // stays open, and counted, until the end of the test
+                timer.stop();
+            }
+        });
+        timer.start(10, 10);
+        try {
+            loop.run();
+        } finally {
+            timer.close();
+            async.close();
+        }
+
+        final LoopMetrics metrics = loop.getMetrics(new LoopMetrics());
+        Assert.assertTrue(metrics.getIterations() > 0);
+        Assert.assertTrue(metrics.getIdleTime() > 0);
+        Assert.assertTrue(metrics.getBusyTime() > 0);
+        Assert.assertTrue(metrics.getMaxIterationTime() <= metrics.getBusyTime());
+        Assert.assertEquals(0, metrics.getPendingWriteBytes());
+        Assert.assertEquals(1, metrics.getCallbackExceptions());
+        Assert.assertEquals(1, metrics.getHandleCount(HandleType.UV_TIMER));
+        Assert.assertEquals(1, metrics.getHandleCount(HandleType.UV_ASYNC));
+        Assert.assertEquals(0, metrics.getHandleCount(HandleType.UV_TCP));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNowAfterDestroy() {
+        final LoopHandle loop = new LoopHandle();
+        loop.destroy();
+        loop.now();
+    }
+
+    @Test
+    public void testDestroyWithMetrics() throws Throwable {
+        final LoopHandle loop = new LoopHandle(LibUVConfiguration.builder().loopMetricsInterval(1L).build());
+        final TimerHandle timer = new DefaultHandleFactory(loop).newTimerHandle();
+        timer.start(5, 0);
+        loop.run();
+        timer.close();
+        loop.closeAll();
+        loop.runNoWait();
+        // the metrics handles are closed with the loop, which must not be busy
+        loop.destroy();
+    }
+
+    @Test
+    public void testDestroyWithBatchedDispatch() throws Throwable {
+        final LoopHandle loop = new LoopHandle(LibUVConfiguration.builder().batchedDispatchEvents(64).build());
+        final TCPHandle tcp = new DefaultHandleFactory(loop).newTCPHandle();
+        tcp.close();
+        // the check handle of the batch is closed after the stream
+        loop.destroy();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMetricsInterval() {
+        LibUVConfiguration.builder().loopMetricsInterval(-1L).build();
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoopStallDetectorTest extends TestBase {
+
+    @Test
+    public void testStallReported() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final List<LoopStall> stalls = new CopyOnWriteArrayList<>();
+        final LoopStallDetector detector = new LoopStallDetector(loop, 50, stalls::add);
+        try {
+            final TimerHandle fast = handleFactory.newTimerHandle();
+            final TimerHandle slow = handleFactory.newTimerHandle();
+            final int[] fired = new int[1];
+            fast.setTimerFiredCallback(status -> {
+                if (++fired[0] == 10) {
+                    fast.close();
+                }
+            });
+            slow.setTimerFiredCallback(status -> {
+                Thread.sleep(300);
+                slow.close();
+            });
+            fast.start(1, 1);
+            slow.start(20, 0);
+            // waiting for the timers is not a stall
+            loop.run();
+        } finally {
+            detector.close();
+        }
+
+        Assert.assertEquals(1, stalls.size());
+        final LoopStall stall = stalls.get(0);
+        Assert.assertEquals("TimerCallback", stall.getCallbackType());
+        Assert.assertEquals(Thread.currentThread().getName(), stall.getThreadName());
+        Assert.assertTrue(stall.getDuration() >= 50);
+        Assert.assertTrue(stall.getCallbackClass().startsWith(LoopStallDetectorTest.class.getName()));
+        boolean sleeping = false;
+        for (final StackTraceElement element : stall.getStackTrace()) {
+            sleeping |= "sleep".equals(element.getMethodName());
+        }
+        Assert.assertTrue(sleeping);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSingleDetectorPerLoop() {
+        final LoopHandle loop = new LoopHandle();
+        final LoopStallDetector detector = new LoopStallDetector(loop, 50, stall -> {});
+        try {
+            new LoopStallDetector(loop, 50, stall -> {});
+        } finally {
+            detector.close();
+        }
+    }
+}
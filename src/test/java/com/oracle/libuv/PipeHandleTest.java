@@ -153,4 +153,81 @@ public class PipeHandleTest extends TestBase {
         Assert.assertEquals(serverRecvCount.get(), TIMES);
         Assert.assertEquals(clientRecvCount.get(), TIMES);
     }
+
+    @Test
+    public void testHandlePassing() throws Throwable {
+        if (OS.startsWith("Windows")) {
+            // socket pairs cannot be opened as pipes on windows
+            return;
+        }
+        final int port = 23478;
+        final AtomicInteger received = new AtomicInteger(0);
+        final AtomicBoolean clientDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+        final PipeHandle sender = handleFactory.newPipeHandle(true);
+        final PipeHandle receiver = handleFactory.newPipeHandle(true);
+
+        final int[] fds = PipeHandle.socketPair();
+        sender.open(fds[0]);
+        receiver.open(fds[1]);
+
+        server.setConnectionCallback((status, error) -> {
+            final TCPHandle peer = handleFactory.newTCPHandle();
+            server.accept(peer);
+            sender.setWriteCallback((s, e) -> {
+                Assert.assertEquals(0, s);
+                // the receiver holds its own copy
+                peer.close();
+            });
+            sender.writeHandle(peer);
+            server.close();
+        });
+
+        receiver.setReadCallback(data -> {
+            if (data == null) {
+                receiver.close();
+                return;
+            }
+            while (receiver.pendingCount() > 0) {
+                Assert.assertEquals(HandleType.UV_TCP, receiver.pendingType());
+                final TCPHandle peer = handleFactory.newTCPHandle();
+                receiver.accept(peer);
+                received.incrementAndGet();
+                peer.write("PASSED");
+                peer.setWriteCallback((s, e) -> peer.close());
+            }
+            Assert.assertEquals(HandleType.UV_UNKNOWN_HANDLE, receiver.pendingType());
+            sender.close();
+            receiver.close();
+        });
+        receiver.readStart();
+
+        client.setConnectCallback((status, error) -> client.readStart());
+        client.setReadCallback(data -> {
+            if (data == null) {
+                client.close();
+                clientDone.set(true);
+            } else {
+                Assert.assertEquals("PASSED", new String(data.array(), data.position(), data.remaining(), "utf-8"));
+            }
+        });
+
+        server.bind("127.0.0.1", port, false);
+        server.listen(0);
+        client.connect("127.0.0.1", port, false);
+
+        final long start = System.currentTimeMillis();
+        while (!clientDone.get()) {
+            if (System.currentTimeMillis() - start > TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+
+        Assert.assertEquals(1, received.get());
+    }
 }
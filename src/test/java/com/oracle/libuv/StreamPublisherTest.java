@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamPublisherTest extends TestBase {
+
+    private static final String ADDRESS = "127.0.0.1";
+
+    private static final int PORT = 45691;
+
+    @Test
+    public void testEchoWithDemand() throws Throwable {
+        echo(LibUVConfiguration.builder().build(), PORT);
+    }
+
+    @Test
+    public void testEchoUncopiedReads() throws Throwable {
+        // the subscriber sees the pooled read buffers themselves
+        echo(LibUVConfiguration.builder().copyBuffer(false).build(), PORT + 1);
+    }
+
+    private void echo(final LibUVConfiguration configuration, final int port) throws Throwable {
+        final byte[] payload = new byte[512 * 1024];
+        new Random(11).nextBytes(payload);
+        final ByteArrayOutputStream echoed = new ByteArrayOutputStream();
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        final AtomicInteger buffers = new AtomicInteger();
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle(configuration));
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback((status, error) -> {
+            final TCPHandle peer = handleFactory.newTCPHandle();
+            server.accept(peer);
+            server.close();
+            final StreamWriteSubscriber writer = new StreamWriteSubscriber(peer, 64 * 1024);
+            // counts the buffers on their way from the reads to the writes
+            new StreamPublisher(peer).subscribe(new StreamSubscriber() {
+                @Override
+                public void onSubscribe(final StreamSubscription subscription) {
+                    writer.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(final ByteBuffer buffer) {
+                    buffers.incrementAndGet();
+                    writer.onNext(buffer);
+                }
+
+                @Override
+                public void onError(final Throwable error) {
+                    writer.onError(error);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.set(true);
+                    writer.onComplete();
+                }
+            });
+            peer.setShutdownCallback((s, e) -> peer.close());
+        });
+
+        client.setConnectCallback((status, error) -> {
+            client.readStart();
+            client.write(ByteBuffer.wrap(payload));
+            client.closeWrite();
+        });
+        client.setReadCallback(data -> {
+            if (data == null) {
+                client.close();
+            } else {
+                final byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                echoed.write(bytes);
+            }
+        });
+
+        server.bind(ADDRESS, port, false);
+        server.listen(1);
+        client.connect(ADDRESS, port, false);
+        loop.run();
+
+        Assert.assertTrue(completed.get());
+        Assert.assertTrue(buffers.get() > 0);
+        Assert.assertArrayEquals(payload, echoed.toByteArray());
+    }
+
+    @Test
+    public void testWriteSubscriberHeapBuffers() throws Throwable {
+        final byte[] backing = "xxxHELLO, WORLDyyy".getBytes("utf-8");
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback((status, error) -> {
+            final TCPHandle peer = handleFactory.newTCPHandle();
+            server.accept(peer);
+            server.close();
+            peer.setReadCallback(data -> {
+                if (data == null) {
+                    peer.close();
+                } else {
+                    final byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    received.write(bytes);
+                }
+            });
+            peer.readStart();
+        });
+
+        client.setConnectCallback((status, error) -> {
+            final StreamWriteSubscriber writer = new StreamWriteSubscriber(client, 64 * 1024);
+            writer.onSubscribe(new StreamSubscription() {
+                @Override
+                public void request(final long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            // a slice has a non-zero array offset, a read-only view no array
+            writer.onNext(((ByteBuffer) ByteBuffer.wrap(backing).position(3).limit(8)).slice());
+            writer.onNext(((ByteBuffer) ByteBuffer.wrap(backing).position(8).limit(15)).asReadOnlyBuffer());
+            writer.onComplete();
+        });
+        client.setShutdownCallback((status, error) -> client.close());
+
+        server.bind(ADDRESS, PORT + 2, false);
+        server.listen(1);
+        client.connect(ADDRESS, PORT + 2, false);
+        loop.run();
+
+        Assert.assertEquals("HELLO, WORLD", new String(received.toByteArray(), "utf-8"));
+    }
+}
@@ -25,11 +25,18 @@
 
 package com.oracle.libuv;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -161,4 +168,571 @@ public class TCPHandleTest extends TestBase {
     public void testConnectionIpv6() throws Throwable {
         testConnection(true);
     }
+
+    @Test
+    public void testLeasedRead() throws Throwable {
+        final List<LeasedBuffer> leases = new ArrayList<>();
+        final StringBuilder received = new StringBuilder();
+        final AtomicInteger outstandingAtEof = new AtomicInteger(-1);
+        final AtomicBoolean serverDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback(new StreamConnectionCallback() {
+            @Override
+            public void onConnection(int status, Exception error) throws Exception {
+                server.accept(peer);
+                peer.readStart();
+                server.close();
+            }
+        });
+
+        peer.setLeasedReadCallback(new StreamLeasedReadCallback() {
+            @Override
+            public void onRead(final LeasedBuffer buffer) throws Exception {
+                if (buffer == null) {
+                    // keep every lease until the end, like a partial frame would
+                    outstandingAtEof.set(peer.getOutstandingLeases());
+                    for (final LeasedBuffer lease : leases) {
+                        received.append(stringify(lease.buffer()));
+                        lease.release();
+                    }
+                    peer.close();
+                } else {
+                    leases.add(buffer);
+                }
+            }
+        });
+
+        peer.setCloseCallback(new StreamCloseCallback() {
+            @Override
+            public void onClose() throws Exception {
+                serverDone.set(true);
+            }
+        });
+
+        client.setConnectCallback(new StreamConnectCallback() {
+            @Override
+            public void onConnect(int status, Exception error) throws Exception {
+                for (int i = 0; i < TIMES; i++) {
+                    client.write("message " + i + ";");
+                }
+                client.close();
+            }
+        });
+
+        server.bind(ADDRESS, PORT + 1, false);
+        server.listen(1);
+        client.connect(ADDRESS, PORT + 1, false);
+
+        final long start = System.currentTimeMillis();
+        while (!serverDone.get()) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < TIMES; i++) {
+            expected.append("message " + i + ";");
+        }
+        Assert.assertEquals(expected.toString(), received.toString());
+        Assert.assertEquals(leases.size(), outstandingAtEof.get());
+        Assert.assertEquals(0, peer.getOutstandingLeases());
+    }
+
+    @Test
+    public void testProvidedRead() throws Throwable {
+        final ByteBuffer arena = ByteBuffer.allocateDirect(4096);
+        final AtomicInteger reads = new AtomicInteger(0);
+        final AtomicBoolean sameBuffer = new AtomicBoolean(true);
+        final AtomicBoolean serverDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback(new StreamConnectionCallback() {
+            @Override
+            public void onConnection(int status, Exception error) throws Exception {
+                server.accept(peer);
+                // every read appends to the arena
+                peer.readStart(size -> arena);
+                server.close();
+            }
+        });
+
+        peer.setReadCallback(new StreamReadCallback() {
+            @Override
+            public void onRead(final ByteBuffer data) throws Exception {
+                if (data == null) {
+                    peer.close();
+                } else {
+                    reads.incrementAndGet();
+                    sameBuffer.compareAndSet(true, data == arena);
+                    data.position(data.limit());
+                    data.limit(data.capacity());
+                }
+            }
+        });
+
+        peer.setCloseCallback(new StreamCloseCallback() {
+            @Override
+            public void onClose() throws Exception {
+                serverDone.set(true);
+            }
+        });
+
+        client.setConnectCallback(new StreamConnectCallback() {
+            @Override
+            public void onConnect(int status, Exception error) throws Exception {
+                for (int i = 0; i < TIMES; i++) {
+                    client.write("message " + i + ";");
+                }
+                client.close();
+            }
+        });
+
+        server.bind(ADDRESS, PORT + 2, false);
+        server.listen(1);
+        client.connect(ADDRESS, PORT + 2, false);
+
+        final long start = System.currentTimeMillis();
+        while (!serverDone.get()) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < TIMES; i++) {
+            expected.append("message " + i + ";");
+        }
+        arena.flip();
+        Assert.assertEquals(expected.toString(), stringify(arena));
+        Assert.assertTrue(reads.get() > 0);
+        Assert.assertTrue(sameBuffer.get());
+    }
+
+    @Test
+    public void testProvidedReadNoBuffer() throws Throwable {
+        // smaller than what the client writes, reading stops whenever it is full
+        final ByteBuffer arena = ByteBuffer.allocateDirect(16);
+        final StringBuilder received = new StringBuilder();
+        final AtomicInteger stalls = new AtomicInteger(0);
+        final AtomicBoolean serverDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback((status, error) -> {
+            server.accept(peer);
+            peer.readStart(size -> arena);
+            server.close();
+        });
+
+        peer.setReadCallback(data -> {
+            if (data == null) {
+                arena.flip();
+                received.append(stringify(arena));
+                peer.close();
+            } else {
+                data.position(data.limit());
+                data.limit(data.capacity());
+            }
+        });
+
+        peer.setNoBufferCallback(() -> {
+            stalls.incrementAndGet();
+            arena.flip();
+            received.append(stringify(arena));
+            arena.clear();
+            peer.readStart();
+        });
+
+        peer.setCloseCallback(() -> serverDone.set(true));
+
+        client.setConnectCallback((status, error) -> {
+            for (int i = 0; i < TIMES; i++) {
+                client.write("message " + i + ";");
+            }
+            client.close();
+        });
+
+        server.bind(ADDRESS, PORT + 13, false);
+        server.listen(1);
+        client.connect(ADDRESS, PORT + 13, false);
+
+        final long start = System.currentTimeMillis();
+        while (!serverDone.get()) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < TIMES; i++) {
+            expected.append("message " + i + ";");
+        }
+        Assert.assertEquals(expected.toString(), received.toString());
+        Assert.assertTrue(stalls.get() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProvidedReadHeapBuffer() {
+        final TCPHandle tcp = new DefaultHandleFactory(new LoopHandle()).newTCPHandle();
+        try {
+            tcp.readStart(size -> ByteBuffer.allocate(size));
+        } finally {
+            tcp.close();
+        }
+    }
+
+    /**
+     * Runs a server that collects everything it reads until the client shuts
+     * down, the client side writes from {@code onConnect} and ends with
+     * {@link StreamHandle#closeWrite()}.
+     */
+    private byte[] writeAndReceive(final int port, final Consumer<TCPHandle> onConnect) throws Throwable {
+        return writeAndReceive(LibUVConfiguration.builder().build(), port, onConnect);
+    }
+
+    private byte[] writeAndReceive(final LibUVConfiguration configuration,
+                                   final int port,
+                                   final Consumer<TCPHandle> onConnect) throws Throwable {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final AtomicBoolean serverDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle(configuration));
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        server.setConnectionCallback(new StreamConnectionCallback() {
+            @Override
+            public void onConnection(int status, Exception error) throws Exception {
+                server.accept(peer);
+                peer.readStart();
+                server.close();
+            }
+        });
+
+        peer.setReadCallback(new StreamReadCallback() {
+            @Override
+            public void onRead(final ByteBuffer data) throws Exception {
+                if (data == null) {
+                    peer.close();
+                } else {
+                    final byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    received.write(bytes);
+                }
+            }
+        });
+
+        peer.setCloseCallback(new StreamCloseCallback() {
+            @Override
+            public void onClose() throws Exception {
+                serverDone.set(true);
+            }
+        });
+
+        client.setConnectCallback(new StreamConnectCallback() {
+            @Override
+            public void onConnect(int status, Exception error) throws Exception {
+                onConnect.accept(client);
+            }
+        });
+
+        client.setShutdownCallback(new StreamShutdownCallback() {
+            @Override
+            public void onShutdown(int status, Exception error) throws Exception {
+                client.close();
+            }
+        });
+
+        server.bind(ADDRESS, port, false);
+        server.listen(1);
+        client.connect(ADDRESS, port, false);
+
+        final long start = System.currentTimeMillis();
+        while (!serverDone.get()) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        return received.toByteArray();
+    }
+
+    @Test
+    public void testGatheringWrite() throws Throwable {
+        final byte[] received = writeAndReceive(PORT + 3, client -> {
+            final ByteBuffer header = ByteBuffer.wrap("HTTP/1.1 200 OK\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            final ByteBuffer body = ByteBuffer.allocateDirect(16);
+            body.put("hello".getBytes(StandardCharsets.UTF_8));
+            body.flip();
+            // only the remaining part of a sliced heap buffer is written
+            final ByteBuffer trailer = ByteBuffer.wrap("xx-trailer-xx".getBytes(StandardCharsets.UTF_8), 2, 9).slice();
+            trailer.position(1);
+            client.write(Arrays.asList(header, body, trailer.asReadOnlyBuffer()));
+            client.write(header, body);
+            client.closeWrite();
+        });
+        Assert.assertEquals("HTTP/1.1 200 OK\r\n\r\nhellotrailer-HTTP/1.1 200 OK\r\n\r\nhello",
+                            new String(received, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testHeapWriteUnderGcPressure() throws Throwable {
+        final int chunks = 64;
+        final int chunkSize = 256 * 1024;
+        final AtomicBoolean pressure = new AtomicBoolean(true);
+        // keeps the collector busy moving objects while writes sit in the queue
+        final Thread garbage = new Thread(() -> {
+            final List<byte[]> retained = new ArrayList<>();
+            while (pressure.get()) {
+                retained.add(new byte[4096 + retained.size()]);
+                if (retained.size() > 1024) {
+                    retained.clear();
+                    System.gc();
+                }
+            }
+        });
+        garbage.setDaemon(true);
+        garbage.start();
+        final byte[] received;
+        try {
+            received = writeAndReceive(PORT + 4, client -> {
+                for (int i = 0; i < chunks; i++) {
+                    final byte[] chunk = new byte[chunkSize];
+                    for (int j = 0; j < chunkSize; j++) {
+                        chunk[j] = (byte) (i * 31 + j);
+                    }
+                    // the chunk becomes garbage as soon as write returns
+                    client.write(ByteBuffer.wrap(chunk));
+                }
+                System.gc();
+                client.closeWrite();
+            });
+        } finally {
+            pressure.set(false);
+            garbage.join();
+        }
+        Assert.assertEquals(chunks * chunkSize, received.length);
+        for (int i = 0; i < chunks; i++) {
+            for (int j = 0; j < chunkSize; j++) {
+                if (received[i * chunkSize + j] != (byte) (i * 31 + j)) {
+                    Assert.fail("corrupted byte at chunk " + i + " offset " + j);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTryWrite() throws Throwable {
+        final byte[] large = new byte[8 * 1024 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 7);
+        }
+        final int[] written = new int[2];
+        final byte[] received = writeAndReceive(PORT + 5, client -> {
+            final ByteBuffer small = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+            // an idle socket takes a few bytes without queuing
+            written[0] = client.tryWrite(small);
+            final ByteBuffer rest = ByteBuffer.wrap(large);
+            written[1] = client.tryWriteOrQueue(rest);
+            Assert.assertFalse(rest.hasRemaining());
+            client.closeWrite();
+        });
+        Assert.assertEquals(5, written[0]);
+        Assert.assertTrue(written[1] <= large.length);
+        Assert.assertEquals(5 + large.length, received.length);
+        Assert.assertEquals("hello", new String(received, 0, 5, StandardCharsets.UTF_8));
+        for (int i = 0; i < large.length; i++) {
+            if (received[5 + i] != (byte) (i * 7)) {
+                Assert.fail("corrupted byte at offset " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteCoalescing() throws Throwable {
+        final AtomicInteger writeCallbacks = new AtomicInteger();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append("PING ").append(i).append("\r\n");
+        }
+        final byte[] received = writeAndReceive(PORT + 6, client -> {
+            // the batch is flushed from the loop's prepare phase
+            client.setWriteCallback((status, error) -> {
+                writeCallbacks.incrementAndGet();
+                client.closeWrite();
+            });
+            client.setWriteCoalescing(64 * 1024);
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(0, client.write("PING " + i + "\r\n"));
+            }
+            final ByteBuffer direct = ByteBuffer.allocateDirect(4);
+            direct.put("DONE".getBytes(StandardCharsets.UTF_8));
+            client.write(direct);
+            // nothing was handed to libuv yet
+            Assert.assertEquals(0, writeCallbacks.get());
+        });
+        expected.append("DONE");
+        Assert.assertEquals(expected.toString(), new String(received, StandardCharsets.UTF_8));
+        Assert.assertEquals(1, writeCallbacks.get());
+    }
+
+    @Test
+    public void testWriteWatermarks() throws Throwable {
+        final int size = 32 * 1024 * 1024;
+        final List<Boolean> transitions = new ArrayList<>();
+        final byte[] received = writeAndReceive(PORT + 7, client -> {
+            client.setWriteWatermarks(64 * 1024, 1024 * 1024);
+            client.setWritabilityCallback(writable -> {
+                transitions.add(writable);
+                if (writable) {
+                    client.closeWrite();
+                }
+            });
+            Assert.assertFalse(client.isBackpressured());
+            // more than the socket buffers take at once
+            client.write(ByteBuffer.allocateDirect(size));
+            Assert.assertTrue(client.isBackpressured());
+        });
+        Assert.assertEquals(Arrays.asList(false, true), transitions);
+        Assert.assertEquals(size, received.length);
+    }
+
+    @Test
+    public void testBatchedDispatch() throws Throwable {
+        final LibUVConfiguration configuration = LibUVConfiguration.builder()
+                .batchedDispatchEvents(8)
+                .build();
+        final int messages = 1000;
+        final AtomicInteger writeCallbacks = new AtomicInteger();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < messages; i++) {
+            expected.write(("MSG " + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] large = new byte[4 * 1024 * 1024];
+        new Random(7).nextBytes(large);
+        expected.write(large);
+        final byte[] received = writeAndReceive(configuration, PORT + 8, client -> {
+            client.setWriteCallback((status, error) -> {
+                Assert.assertEquals(0, status);
+                // the ring holds 8 events, completions span several dispatches
+                if (writeCallbacks.incrementAndGet() == messages + 1) {
+                    client.closeWrite();
+                }
+            });
+            for (int i = 0; i < messages; i++) {
+                client.write("MSG " + i + "\n");
+            }
+            client.write(ByteBuffer.wrap(large));
+        });
+        Assert.assertEquals(messages + 1, writeCallbacks.get());
+        Assert.assertArrayEquals(expected.toByteArray(), received);
+    }
+
+    @Test
+    public void testRequestSlots() throws Throwable {
+        final LoopHandle[] loop = new LoopHandle[1];
+        final byte[] received = writeAndReceive(PORT + 9, client -> {
+            loop[0] = client.loop;
+            // heap writes without a context are tracked without a slot
+            client.write(ByteBuffer.wrap(new byte[16]));
+            Assert.assertEquals(0, loop[0].requests().pending());
+            for (int i = 0; i < 100; i++) {
+                client.write(ByteBuffer.allocateDirect(16));
+            }
+            Assert.assertEquals(100, loop[0].requests().pending());
+            client.closeWrite();
+        });
+        Assert.assertEquals(101 * 16, received.length);
+        Assert.assertEquals(0, loop[0].requests().pending());
+    }
+
+    @Test
+    public void testAsyncRequests() throws Throwable {
+        final Thread loopThread = Thread.currentThread();
+        final AtomicInteger completions = new AtomicInteger();
+        final byte[] received = writeAndReceive(PORT + 10, client -> {
+            client.writeAsync("one ")
+                .thenCompose(status -> {
+                    Assert.assertSame(loopThread, Thread.currentThread());
+                    completions.incrementAndGet();
+                    return client.writeAsync(ByteBuffer.wrap("two".getBytes(StandardCharsets.UTF_8)));
+                })
+                .thenCompose(status -> {
+                    completions.incrementAndGet();
+                    return client.closeWriteAsync();
+                })
+                .thenAccept(status -> completions.incrementAndGet());
+        });
+        Assert.assertEquals("one two", new String(received, StandardCharsets.UTF_8));
+        Assert.assertEquals(3, completions.get());
+    }
+
+    @Test
+    public void testAsyncConnectRefused() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // nothing listens on this port
+        client.connectAsync(ADDRESS, PORT + 11, false).whenComplete((status, error) -> {
+            failure.set(error);
+            client.close();
+        });
+        loop.run();
+
+        Assert.assertNotNull(failure.get());
+        Assert.assertEquals(0, loop.requests().pending());
+    }
+
+    @Test
+    public void testResolvedAddress() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+        final ResolvedAddress address = new ResolvedAddress(ADDRESS, PORT + 12, false);
+        final AtomicInteger connected = new AtomicInteger();
+
+        server.setConnectionCallback((status, error) -> {
+            server.accept(peer);
+            peer.close();
+            server.close();
+        });
+        server.bind(address);
+        server.listen(1);
+        Assert.assertEquals(PORT + 12, server.getSocketName().getPort());
+
+        // the same address is reused by every connect
+        client.connectAsync(address).thenAccept(status -> {
+            connected.incrementAndGet();
+            client.close();
+        });
+        loop.run();
+
+        Assert.assertEquals(1, connected.get());
+        Assert.assertEquals(0, loop.requests().pending());
+    }
 }
@@ -38,6 +38,7 @@ public class TestBase {
     protected static final String TMPDIR = System.getProperty("java.io.tmpdir");
     protected static final int TIMEOUT = 5000;
     protected static final boolean IS_WINDOWS = System.getProperty("os.name").startsWith("Windows");
+    protected static final boolean IS_LINUX = System.getProperty("os.name").startsWith("Linux");
 
     protected static void fill(final ByteBuffer buffer, byte b) {
         if (buffer.hasArray()) {
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+/**
+ * Cost of arming, re-arming on every read and finally cancelling a timeout
+ * per connection, with a {@link TimerWheel} and with a {@link TimerHandle}
+ * per connection.
+ * <p>
+ * Usage: {@code TimerWheelBenchmark [connections] [resets] [rounds]}
+ */
+public final class TimerWheelBenchmark {
+
+    static {
+        LibUV.loadJni();
+    }
+
+    private static final long IDLE_TIMEOUT = 30000;
+
+    public static void main(final String[] args) throws Throwable {
+        final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final int resets = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        for (int round = 1; round <= rounds; round++) {
+            // the first rounds warm up the jit
+            report(round, "timer wheel", connections, resets, wheel(connections, resets));
+            report(round, "timer handles", connections, resets, handles(connections, resets));
+        }
+    }
+
+    private static void report(final int round, final String name, final int connections, final int resets, final long nanos) {
+        System.out.printf("round %d %-14s %,12.0f operations/s%n", round, name, connections * (resets + 2) * 1e9 / nanos);
+    }
+
+    private static long wheel(final int connections,
+                              final int resets) throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TimerWheel wheel = handleFactory.newTimerWheel(TimerWheel.DEFAULT_TICK_MILLIS, TimerWheel.DEFAULT_WHEEL_SIZE);
+        final Runnable onIdle = () -> { };
+        final TimerWheel.Timeout[] timeouts = new TimerWheel.Timeout[connections];
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            timeouts[i] = wheel.schedule(onIdle, IDLE_TIMEOUT);
+        }
+        for (int r = 0; r < resets; r++) {
+            for (int i = 0; i < connections; i++) {
+                timeouts[i].reschedule(IDLE_TIMEOUT);
+            }
+        }
+        for (int i = 0; i < connections; i++) {
+            timeouts[i].cancel();
+        }
+        final long nanos = System.nanoTime() - start;
+
+        wheel.close();
+        loop.run();
+        loop.destroy();
+        return nanos;
+    }
+
+    private static long handles(final int connections,
+                                final int resets) throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TimerCallback onIdle = status -> { };
+        final TimerHandle[] timers = new TimerHandle[connections];
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            timers[i] = handleFactory.newTimerHandle();
+            timers[i].setTimerFiredCallback(onIdle);
+            timers[i].start(IDLE_TIMEOUT, 0);
+        }
+        for (int r = 0; r < resets; r++) {
+            for (int i = 0; i < connections; i++) {
+                timers[i].start(IDLE_TIMEOUT, 0);
+            }
+        }
+        for (int i = 0; i < connections; i++) {
+            timers[i].close();
+        }
+        loop.run();
+        final long nanos = System.nanoTime() - start;
+
+        loop.destroy();
+        return nanos;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimerWheelTest extends TestBase {
+
+    @Test
+    public void testScheduleCancelReschedule() throws Throwable {
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final TimerWheel wheel = handleFactory.newTimerWheel(10, 64);
+        final List<String> fired = new ArrayList<>();
+
+        wheel.schedule(() -> fired.add("late"), 300);
+        wheel.schedule(() -> fired.add("early"), 50);
+        final TimerWheel.Timeout cancelled = wheel.schedule(() -> fired.add("cancelled"), 100);
+        final TimerWheel.Timeout moved = wheel.schedule(() -> fired.add("moved"), 20);
+        // longer than one round of the wheel
+        wheel.schedule(() -> fired.add("next round"), 1000);
+        Assert.assertEquals(5, wheel.size());
+
+        Assert.assertTrue(cancelled.cancel());
+        Assert.assertFalse(cancelled.cancel());
+        moved.reschedule(150);
+        Assert.assertEquals(4, wheel.size());
+
+        final long start = System.currentTimeMillis();
+        // the timer stops once nothing is pending and the loop exits
+        loop.run();
+        final long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertEquals(0, wheel.size());
+        Assert.assertEquals(4, fired.size());
+        Assert.assertEquals("early", fired.get(0));
+        Assert.assertEquals("moved", fired.get(1));
+        Assert.assertEquals("late", fired.get(2));
+        Assert.assertEquals("next round", fired.get(3));
+        Assert.assertTrue(elapsed >= 980);
+        Assert.assertFalse(moved.isPending());
+
+        // fired timeouts can be armed again, also from a task
+        final TimerWheel.Timeout again = wheel.schedule(() -> fired.add("again"), 500);
+        wheel.schedule(() -> again.reschedule(10), 10);
+        loop.run();
+        Assert.assertEquals("again", fired.get(fired.size() - 1));
+        Assert.assertEquals(5, fired.size());
+
+        wheel.close();
+        loop.run();
+    }
+}
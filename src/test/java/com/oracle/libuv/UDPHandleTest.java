@@ -27,7 +27,9 @@ package com.oracle.libuv;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -109,4 +111,348 @@ public class UDPHandleTest extends TestBase {
     public void testConnectionIpv6() throws Throwable {
         testConnection(true);
     }
+
+    private BufferPoolStats recvWithPool(final LibUVConfiguration configuration, final int port) throws Throwable {
+        final AtomicInteger serverRecvCount = new AtomicInteger(0);
+        final AtomicBoolean serverDone = new AtomicBoolean(false);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle(configuration));
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final UDPHandle server = handleFactory.newUDPHandle();
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback(new UDPRecvCallback() {
+            @Override
+            public void onRecv(int nread, ByteBuffer data, Address address) throws Exception {
+                if (serverRecvCount.incrementAndGet() == TIMES) {
+                    server.close();
+                    client.close();
+                    serverDone.set(true);
+                }
+            }
+        });
+
+        server.bind(port, HOST, false);
+        server.recvStart();
+
+        for (int i = 0; i < TIMES; i++) {
+            client.send("PING." + i, port, HOST, false);
+        }
+
+        final long start = System.currentTimeMillis();
+        while (!serverDone.get()) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        return loop.getBufferPoolStats();
+    }
+
+    @Test
+    public void testBufferPool() throws Throwable {
+        final BufferPoolStats stats = recvWithPool(LibUVConfiguration.builder().build(), PORT + 1);
+        System.out.println(stats);
+        Assert.assertTrue(stats.getHits() > 0);
+        Assert.assertTrue(stats.getPooledBytes() > 0);
+    }
+
+    @Test
+    public void testBufferPoolDisabled() throws Throwable {
+        final BufferPoolStats stats = recvWithPool(LibUVConfiguration.builder().bufferPoolMaxBytes(0L).build(), PORT + 2);
+        System.out.println(stats);
+        Assert.assertEquals(stats.getHits(), 0);
+        Assert.assertEquals(stats.getPooledBytes(), 0);
+    }
+
+    @Test
+    public void testRecvBatch() throws Throwable {
+        final int port = PORT + 3;
+        final List<String> received = new ArrayList<>();
+        final AtomicInteger batches = new AtomicInteger(0);
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final UDPHandle server = handleFactory.newUDPHandle(UDPHandle.MAX_RECV_BATCH_SIZE);
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback((nread, data, address) -> Assert.fail("batched handles never call onRecv"));
+        server.setRecvBatchCallback((status, batch) -> {
+            Assert.assertEquals(status, batch.size());
+            batches.incrementAndGet();
+            final int clientPort = client.address().getPort();
+            for (int i = 0; i < batch.size(); i++) {
+                final byte[] payload = new byte[batch.length(i)];
+                final ByteBuffer data = batch.buffer().duplicate();
+                data.position(batch.offset(i));
+                data.get(payload);
+                received.add(new String(payload, StandardCharsets.UTF_8));
+                Assert.assertEquals(batch.copy(i), ByteBuffer.wrap(payload));
+                Assert.assertFalse(batch.isIPv6(i));
+                Assert.assertFalse(batch.isPartial(i));
+                Assert.assertEquals(clientPort, batch.port(i));
+                Assert.assertEquals(0x7f000001, batch.ipv4(i));
+                Assert.assertEquals(HOST, batch.peer(i).getIp());
+                Assert.assertEquals(clientPort, batch.peer(i).getPort());
+            }
+            if (received.size() == TIMES) {
+                server.close();
+                client.close();
+            }
+        });
+
+        server.bind(port, HOST, false);
+        server.recvStart();
+        for (int i = 0; i < TIMES; i++) {
+            client.send("PING." + i, port, HOST, false);
+        }
+
+        final long start = System.currentTimeMillis();
+        while (received.size() < TIMES) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertEquals("PING." + i, received.get(i));
+        }
+        if (IS_LINUX) {
+            // every datagram is queued before the loop runs, recvmmsg takes
+            // several of them at once
+            Assert.assertTrue(batches.get() < TIMES);
+        }
+    }
+
+    @Test
+    public void testSendBatch() throws Throwable {
+        final int port = PORT + 4;
+        final int count = 50;
+        final List<String> received = new ArrayList<>();
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final UDPHandle server = handleFactory.newUDPHandle();
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback((nread, data, address) -> {
+            final byte[] b = new byte[data.remaining()];
+            data.get(b);
+            received.add(new String(b, StandardCharsets.UTF_8));
+            if (received.size() == count) {
+                server.close();
+                client.close();
+            }
+        });
+        server.bind(port, HOST, false);
+        server.recvStart();
+        client.bind(0, HOST, false);
+
+        final ResolvedAddress destination = new ResolvedAddress(HOST, port, false);
+        final ByteBuffer[] buffers = new ByteBuffer[count + 1];
+        final ResolvedAddress[] destinations = new ResolvedAddress[count + 1];
+        for (int i = 0; i < count; i++) {
+            final byte[] payload = ("PING." + i).getBytes(StandardCharsets.UTF_8);
+            // heap, direct and read-only buffers in the same batch
+            switch (i % 3) {
+            case 0:
+                buffers[i] = ByteBuffer.wrap(payload);
+                break;
+            case 1:
+                buffers[i] = ByteBuffer.allocateDirect(payload.length);
+                buffers[i].put(payload).flip();
+                break;
+            default:
+                buffers[i] = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+            }
+            destinations[i] = destination;
+        }
+        final int[] status = { -1 };
+        client.sendBatch(buffers, destinations, count).thenAccept(s -> status[0] = s);
+        Assert.assertEquals(0, buffers[0].position());
+
+        final long start = System.currentTimeMillis();
+        while (received.size() < count) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        Assert.assertEquals(0, status[0]);
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals("PING." + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testResolvedAddress() throws Throwable {
+        final ResolvedAddress address = new ResolvedAddress(HOST, PORT + 5, false);
+        final List<String> received = new ArrayList<>();
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final UDPHandle server = handleFactory.newUDPHandle();
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback((nread, data, peer) -> {
+            final byte[] b = new byte[data.remaining()];
+            data.get(b);
+            received.add(new String(b, StandardCharsets.UTF_8));
+            if (received.size() == TIMES) {
+                server.close();
+                client.close();
+            }
+        });
+        server.bind(address);
+        server.recvStart();
+        Assert.assertEquals(PORT + 5, server.address().getPort());
+
+        for (int i = 0; i < TIMES; i++) {
+            final byte[] payload = ("PING." + i).getBytes(StandardCharsets.UTF_8);
+            if (i % 2 == 0) {
+                client.send(ByteBuffer.wrap(payload), address);
+            } else {
+                client.sendAsync(ByteBuffer.wrap(payload), 0, payload.length, address);
+            }
+        }
+
+        final long start = System.currentTimeMillis();
+        while (received.size() < TIMES) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertEquals("PING." + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testAddressCache() throws Throwable {
+        final int port = PORT + 6;
+        final List<Address> peers = new ArrayList<>();
+
+        final LoopHandle loop = new LoopHandle(LibUVConfiguration.builder().addressCacheSize(16).build());
+        final HandleFactory handleFactory = new DefaultHandleFactory(loop);
+        final UDPHandle server = handleFactory.newUDPHandle();
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback((nread, data, peer) -> {
+            if (nread <= 0) {
+                return;
+            }
+            peers.add(peer);
+            if (peers.size() == TIMES) {
+                server.close();
+                client.close();
+            }
+        });
+        server.bind(port, HOST, false);
+        server.recvStart();
+        client.bind(0, HOST, false);
+
+        for (int i = 0; i < TIMES; i++) {
+            client.send("PING." + i, port, HOST, false);
+        }
+
+        final long start = System.currentTimeMillis();
+        while (peers.size() < TIMES) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        final Address first = peers.get(0);
+        Assert.assertEquals(HOST, first.getIp());
+        for (final Address peer : peers) {
+            Assert.assertSame(first, peer);
+        }
+        Assert.assertEquals(TIMES - 1, loop.addressCache().hits());
+    }
+
+    @Test
+    public void testConnect() throws Throwable {
+        final ResolvedAddress address = new ResolvedAddress(HOST, PORT + 7, false);
+        final List<String> received = new ArrayList<>();
+
+        final HandleFactory handleFactory = new DefaultHandleFactory(new LoopHandle());
+        final LoopHandle loop = handleFactory.getLoopHandle();
+        final UDPHandle server = handleFactory.newUDPHandle();
+        final UDPHandle client = handleFactory.newUDPHandle();
+
+        server.setRecvCallback((nread, data, peer) -> {
+            if (nread <= 0) {
+                return;
+            }
+            final byte[] b = new byte[data.remaining()];
+            data.get(b);
+            received.add(new String(b, StandardCharsets.UTF_8));
+        });
+        server.bind(address);
+        server.recvStart();
+
+        client.connect(address);
+        Assert.assertEquals(PORT + 7, client.getPeerName().getPort());
+        Assert.assertEquals(HOST, client.getPeerName().getIp());
+
+        final ByteBuffer[] batch = new ByteBuffer[TIMES - 2];
+        for (int i = 0; i < TIMES; i++) {
+            final byte[] payload = ("PING." + i).getBytes(StandardCharsets.UTF_8);
+            if (i == 0) {
+                client.send(ByteBuffer.wrap(payload));
+            } else if (i == 1) {
+                client.sendAsync(ByteBuffer.wrap(payload), 0, payload.length);
+            } else {
+                batch[i - 2] = ByteBuffer.wrap(payload);
+            }
+        }
+        client.sendBatch(batch, batch.length);
+
+        final long start = System.currentTimeMillis();
+        while (received.size() < TIMES) {
+            if (System.currentTimeMillis() - start > TestBase.TIMEOUT) {
+                Assert.fail("timeout");
+            }
+            loop.runNoWait();
+        }
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertEquals("PING." + i, received.get(i));
+        }
+
+        client.disconnect();
+        try {
+            client.send(ByteBuffer.wrap("PING".getBytes(StandardCharsets.UTF_8)));
+            Assert.fail("sent without a destination");
+        } catch (final NativeException expected) {
+            // the handle is no longer connected
+        }
+        server.close();
+        client.close();
+        loop.runNoWait();
+    }
+
+    @Test
+    public void testPeerNameAddressCache() throws Throwable {
+        final LoopHandle loop = new LoopHandle(LibUVConfiguration.builder().addressCacheSize(16).build());
+        final UDPHandle client = new DefaultHandleFactory(loop).newUDPHandle();
+        // connecting a udp handle sends nothing, no server is needed
+        client.connect(PORT + 8, HOST, false);
+        final Address peer = client.getPeerName();
+        Assert.assertEquals(HOST, peer.getIp());
+        Assert.assertEquals(PORT + 8, peer.getPort());
+        Assert.assertSame(peer, client.getPeerName());
+        client.close();
+        loop.runNoWait();
+    }
+
+    @Test(expected = NativeException.class)
+    public void testResolvedAddressInvalid() {
+        new ResolvedAddress("not an address", PORT, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecvBatchSize() {
+        new DefaultHandleFactory(new LoopHandle()).newUDPHandle(UDPHandle.MAX_RECV_BATCH_SIZE + 1);
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.libuv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Queued writes per second over a loopback tcp connection, for heap and
+ * direct buffers with and without a request context. It only uses public
+ * api, so the same class can be run against an older build to compare the
+ * request tracking.
+ * <p>
+ * Usage: {@code WriteBenchmark [writes] [rounds]}
+ */
+public final class WriteBenchmark {
+
+    static {
+        LibUV.loadJni();
+    }
+
+    private static final String ADDRESS = "127.0.0.1";
+
+    private static final int PORT = 34567;
+
+    private static final int MESSAGE_SIZE = 16;
+
+    private static final int IN_FLIGHT = 1024;
+
+    public static void main(final String[] args) throws Throwable {
+        final int writes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (int round = 1; round <= rounds; round++) {
+            // the first rounds warm up the jit
+            report(round, "heap", writes, run(writes, false, false));
+            report(round, "heap+context", writes, run(writes, false, true));
+            report(round, "direct", writes, run(writes, true, false));
+            report(round, "direct+context", writes, run(writes, true, true));
+        }
+    }
+
+    private static void report(final int round, final String name, final int writes, final long nanos) {
+        System.out.printf("round %d %-16s %,12.0f writes/s%n", round, name, writes * 1e9 / nanos);
+    }
+
+    private static long run(final int writes,
+                            final boolean direct,
+                            final boolean withContext) throws Throwable {
+        final Object context = new Object();
+        final CallbackExceptionHandler exceptionHandler = new CallbackExceptionHandler() {
+            @Override
+            public void handle(final Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+        };
+        final LibUVConfiguration configuration = LibUVConfiguration.builder().build();
+        final LoopHandle loop = new LoopHandle(exceptionHandler,
+                new LoopCallbackHandlerFactory(exceptionHandler, configuration),
+                () -> withContext ? context : null,
+                configuration);
+        final HandleFactory handleFactory = new DefaultHandleFactory(loop);
+        final TCPHandle server = handleFactory.newTCPHandle();
+        final TCPHandle peer = handleFactory.newTCPHandle();
+        final TCPHandle client = handleFactory.newTCPHandle();
+
+        final ByteBuffer message = direct ? ByteBuffer.allocateDirect(MESSAGE_SIZE) : ByteBuffer.allocate(MESSAGE_SIZE);
+        final long[] received = new long[1];
+        final int[] issued = new int[1];
+        final int[] completed = new int[1];
+        final long[] start = new long[1];
+        final long[] end = new long[1];
+
+        server.setConnectionCallback((status, error) -> {
+            server.accept(peer);
+            peer.readStart();
+            server.close();
+        });
+        peer.setReadCallback(data -> {
+            if (data == null) {
+                peer.close();
+            } else {
+                received[0] += data.remaining();
+                if (received[0] == (long) writes * MESSAGE_SIZE) {
+                    end[0] = System.nanoTime();
+                    peer.close();
+                }
+            }
+        });
+        client.setWriteCallback((status, error) -> {
+            completed[0]++;
+            if (issued[0] < writes) {
+                issued[0]++;
+                client.write(message);
+            } else if (completed[0] == writes) {
+                client.close();
+            }
+        });
+        client.setConnectCallback((status, error) -> {
+            start[0] = System.nanoTime();
+            for (int i = 0; i < IN_FLIGHT && issued[0] < writes; i++) {
+                issued[0]++;
+                client.write(message);
+            }
+        });
+
+        server.bind(ADDRESS, PORT, false);
+        server.listen(1);
+        client.connect(ADDRESS, PORT, false);
+        loop.run();
+        loop.close();
+        loop.destroy();
+        return end[0] - start[0];
+    }
+}